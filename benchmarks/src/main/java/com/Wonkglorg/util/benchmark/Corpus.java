@@ -0,0 +1,65 @@
+package com.Wonkglorg.util.benchmark;
+
+import com.Wonkglorg.util.TFDataObject;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/*
+ * The generated file every benchmark runs on, once as text and once parsed
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+
+    @Param({"ITEMS_GAME", "RES"})
+    public TFCorpusGenerator.Shape shape;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    public String text;
+    public TFDataObject root;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        text = TFCorpusGenerator.generate(shape, size, depth, 42);
+        root = TFDataObject.from(text);
+    }
+
+    /**
+     * Picks values of the parsed tree at random, the same corpus always picks the same values
+     *
+     * @param count how many values to pick, should be a power of two so callers can cycle through them with a mask
+     * @return the dotted path of the parent object and the key of every picked value
+     */
+    public List<String[]> sampleValues(int count) {
+        List<String[]> values = new ArrayList<>();
+        collectValues(root, "", values);
+        SplittableRandom random = new SplittableRandom(7);
+        List<String[]> sample = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sample.add(values.get(random.nextInt(values.size())));
+        }
+        return sample;
+    }
+
+    private static void collectValues(TFDataObject object, String path, List<String[]> values) {
+        for (String key : object.getChildren()) {
+            TFDataObject child = object.get(key);
+            if (child.isValue()) {
+                values.add(new String[]{path, key});
+            } else {
+                collectValues(child, path.isEmpty() ? key : path + "." + key, values);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.Wonkglorg.util.benchmark;
+
+import com.Wonkglorg.util.TFDataObject;
+import com.Wonkglorg.util.TFQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LookupBenchmark {
+
+    //a power of two so the next sample is picked with a mask
+    private static final int SAMPLES = 1024;
+
+    private String[] paths;
+    private String[] keys;
+    private String[] fullPaths;
+    private int next;
+    private TFQuery query;
+    private String queryKey;
+    private String queryPrefix;
+
+    @Setup(Level.Trial)
+    public void setup(Corpus corpus) {
+        List<String[]> sample = corpus.sampleValues(SAMPLES);
+        paths = new String[SAMPLES];
+        keys = new String[SAMPLES];
+        fullPaths = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            paths[i] = sample.get(i)[0];
+            keys[i] = sample.get(i)[1];
+            fullPaths[i] = paths[i].isEmpty() ? keys[i] : paths[i] + "." + keys[i];
+        }
+        //the same values selected with a query, by filtering getKeyValues and by filtering the pruned stream
+        if (corpus.shape == TFCorpusGenerator.Shape.ITEMS_GAME) {
+            query = TFQuery.compile("items.*.attributes.*.attribute_class");
+            queryKey = "attribute_class";
+            queryPrefix = "items.";
+        } else {
+            query = TFQuery.compile("*.font");
+            queryKey = "font";
+            queryPrefix = "";
+        }
+    }
+
+    @Benchmark
+    public TFDataObject get(Corpus corpus) {
+        return corpus.root.get(fullPaths[next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public String getValue(Corpus corpus) {
+        int i = next++ & (SAMPLES - 1);
+        return corpus.root.getValue(paths[i], keys[i]);
+    }
+
+    @Benchmark
+    public List<TFDataObject.DataObjectEntry> getKeyValues(Corpus corpus) {
+        return corpus.root.getKeyValues(null, -1);
+    }
+
+    @Benchmark
+    public long getKeyValuesFiltered(Corpus corpus) {
+        return corpus.root.getKeyValues(null, -1).stream().filter(entry -> entry.key().equals(queryKey) && entry.path().startsWith(queryPrefix)).count();
+    }
+
+    @Benchmark
+    public long streamKeyValuesFiltered(Corpus corpus) {
+        return corpus.root.streamKeyValues(queryPrefix, -1).filter(entry -> entry.key().equals(queryKey)).count();
+    }
+
+    @Benchmark
+    public long query(Corpus corpus) {
+        return query.stream(corpus.root).count();
+    }
+}
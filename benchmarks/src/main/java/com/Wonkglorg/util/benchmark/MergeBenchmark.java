@@ -0,0 +1,44 @@
+package com.Wonkglorg.util.benchmark;
+
+import com.Wonkglorg.util.TFDataObject;
+import com.Wonkglorg.util.TFMergePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MergeBenchmark {
+
+    private TFDataObject patch;
+
+    @Setup(Level.Trial)
+    public void setup(Corpus corpus) {
+        //a second version of the same shape with different values, most keys collide with the corpus
+        patch = TFDataObject.from(TFCorpusGenerator.generate(corpus.shape, corpus.size, corpus.depth, 43));
+    }
+
+    @Benchmark
+    public TFDataObject merge(Corpus corpus) {
+        return TFDataObject.merge(corpus.root, patch);
+    }
+
+    @Benchmark
+    public TFDataObject mergeKeepBoth(Corpus corpus) {
+        return TFDataObject.merge(TFMergePolicy.KEEP_BOTH, corpus.root, patch);
+    }
+}
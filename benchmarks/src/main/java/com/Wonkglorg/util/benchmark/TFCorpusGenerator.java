@@ -0,0 +1,197 @@
+package com.Wonkglorg.util.benchmark;
+
+import java.util.SplittableRandom;
+
+/*
+ * Generates KeyValues text shaped like the files the library is used on, the same arguments always produce the same text.
+ * ITEMS_GAME produces a tree like items_game.txt with prefabs, items and attribute definitions,
+ * RES produces a hud layout like the .res files in resource/ui with platform conditionals and comments
+ */
+public final class TFCorpusGenerator {
+
+    public enum Shape {
+        ITEMS_GAME, RES
+    }
+
+    private static final String[] ITEM_CLASSES = {"tf_weapon_rocketlauncher", "tf_weapon_shotgun", "tf_weapon_medigun", "tf_wearable", "tf_weapon_knife", "saxxy"};
+    private static final String[] ATTRIBUTE_CLASSES = {"mult_dmg", "mult_clipsize", "add_onhit_addhealth", "set_item_tint_rgb", "mult_maxammo_primary", "custom_name_attr"};
+    private static final String[] CONTROLS = {"CExLabel", "CTFImagePanel", "EditablePanel", "CExButton", "ScalableImagePanel"};
+    private static final String[] FONTS = {"HudFontSmall", "HudFontMediumBold", "TFFontMedium", "ItemFontNameLarge"};
+    private static final String[] CONDITIONALS = {"[$WIN32]", "[$X360]", "[!$OSX]", "[$LINUX]"};
+
+    private final SplittableRandom random;
+    private final StringBuilder builder = new StringBuilder();
+    private int indent;
+
+    private TFCorpusGenerator(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Generates a file
+     *
+     * @param shape   what kind of file to generate
+     * @param entries how many items or top level elements the file has
+     * @param depth   how many object levels are nested below every item or element
+     * @param seed    the seed, the same arguments always generate the same text
+     * @return the text of the file
+     */
+    public static String generate(Shape shape, int entries, int depth, long seed) {
+        TFCorpusGenerator generator = new TFCorpusGenerator(seed);
+        if (shape == Shape.ITEMS_GAME) {
+            generator.itemsGame(entries, depth);
+        } else {
+            generator.res(entries, depth);
+        }
+        return generator.builder.toString();
+    }
+
+    private void itemsGame(int items, int depth) {
+        int prefabs = items / 20 + 1;
+        int attributes = items / 10 + 1;
+        open("items_game");
+        open("game_info");
+        value("first_valid_class", "1");
+        value("last_valid_class", "9");
+        value("account_class_index", "7");
+        close();
+
+        open("prefabs");
+        for (int i = 0; i < prefabs; i++) {
+            open("weapon_base_" + i);
+            if (i > 0 && random.nextInt(3) == 0) {
+                value("prefab", "weapon_base_" + random.nextInt(i));
+            }
+            value("item_class", pick(ITEM_CLASSES));
+            value("craft_class", "weapon");
+            value("item_quality", random.nextBoolean() ? "unique" : "vintage");
+            open("capabilities");
+            value("nameable", "1");
+            value("can_gift_wrap", random.nextBoolean() ? "1" : "0");
+            close();
+            close();
+        }
+        close();
+
+        open("items");
+        for (int i = 0; i < items; i++) {
+            if (random.nextInt(50) == 0) {
+                comment("generated item block " + i);
+            }
+            open(Integer.toString(i));
+            value("name", "Generated Item " + i);
+            value("prefab", "weapon_base_" + random.nextInt(prefabs) + (random.nextInt(4) == 0 ? " valve" : ""));
+            value("item_name", "#TF_Generated_" + i);
+            value("image_inventory", "backpack/weapons/generated/item_" + i);
+            value("min_ilevel", Integer.toString(1 + random.nextInt(100)));
+            value("max_ilevel", "100");
+            open("attributes");
+            int count = 1 + random.nextInt(6);
+            for (int a = 0; a < count; a++) {
+                open("attribute " + random.nextInt(attributes));
+                value("attribute_class", pick(ATTRIBUTE_CLASSES));
+                value("value", Double.toString(Math.round(random.nextDouble() * 400) / 100.0));
+                close();
+            }
+            close();
+            nest("visuals", depth, i);
+            close();
+        }
+        close();
+
+        open("attributes");
+        for (int i = 0; i < attributes; i++) {
+            open(Integer.toString(i));
+            value("name", "attribute " + i);
+            value("attribute_class", pick(ATTRIBUTE_CLASSES));
+            value("description_string", "#Attrib_Generated_" + i);
+            value("description_format", random.nextBoolean() ? "value_is_percentage" : "value_is_additive");
+            value("effect_type", random.nextInt(3) == 0 ? "negative" : "positive");
+            value("stored_as_integer", random.nextBoolean() ? "1" : "0");
+            close();
+        }
+        close();
+        close();
+    }
+
+    private void res(int elements, int depth) {
+        comment("generated hud layout");
+        open("Resource/UI/Generated.res");
+        for (int i = 0; i < elements; i++) {
+            String name = "Element" + i;
+            open(name);
+            value("ControlName", pick(CONTROLS));
+            value("fieldName", name);
+            //the same key with different platform conditionals, as in the shipped hud files
+            conditionalValue("xpos", "c-" + random.nextInt(300), CONDITIONALS[0]);
+            conditionalValue("xpos", Integer.toString(random.nextInt(640)), CONDITIONALS[1]);
+            value("ypos", "r" + random.nextInt(480));
+            value("zpos", Integer.toString(random.nextInt(10)));
+            value("wide", random.nextBoolean() ? "f0" : Integer.toString(10 + random.nextInt(300)));
+            value("tall", Integer.toString(10 + random.nextInt(100)));
+            value("visible", "1");
+            value("enabled", "1");
+            value("font", pick(FONTS));
+            value("labelText", "#TF_Generated_Label_" + i);
+            value("textAlignment", random.nextBoolean() ? "center" : "west");
+            if (i > 0 && random.nextInt(4) == 0) {
+                value("pin_to_sibling", "Element" + random.nextInt(i));
+            }
+            if (random.nextInt(10) == 0) {
+                comment("tweaked for 4:3");
+            }
+            nest("SubPanel", depth, i);
+            close();
+        }
+        close();
+    }
+
+    /**
+     * Adds a chain of objects nested depth levels deep, every level with a few values
+     */
+    private void nest(String key, int depth, int id) {
+        for (int level = 0; level < depth; level++) {
+            open(key + level);
+            value("id", id + "_" + level);
+            value("model", "models/generated/" + id + "/" + level + ".mdl");
+            value("skin", Integer.toString(random.nextInt(4)));
+        }
+        for (int level = 0; level < depth; level++) {
+            close();
+        }
+    }
+
+    private String pick(String[] options) {
+        return options[random.nextInt(options.length)];
+    }
+
+    private void open(String key) {
+        line().append('"').append(key).append("\"\n");
+        line().append("{\n");
+        indent++;
+    }
+
+    private void close() {
+        indent--;
+        line().append("}\n");
+    }
+
+    private void value(String key, String value) {
+        line().append('"').append(key).append("\"\t\t\"").append(value).append("\"\n");
+    }
+
+    private void conditionalValue(String key, String value, String conditional) {
+        line().append('"').append(key).append("\"\t\t\"").append(value).append("\" ").append(conditional).append('\n');
+    }
+
+    private void comment(String text) {
+        line().append("// ").append(text).append('\n');
+    }
+
+    private StringBuilder line() {
+        for (int i = 0; i < indent; i++) {
+            builder.append('\t');
+        }
+        return builder;
+    }
+}
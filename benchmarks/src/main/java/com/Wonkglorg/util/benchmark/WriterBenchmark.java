@@ -0,0 +1,69 @@
+package com.Wonkglorg.util.benchmark;
+
+import com.Wonkglorg.util.TFDataObject;
+import com.Wonkglorg.util.TFDataVisualizer;
+import com.Wonkglorg.util.TFTableFormat;
+import com.Wonkglorg.util.TFTableWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WriterBenchmark {
+
+    private TFDataVisualizer visualizer;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void setup(Corpus corpus) {
+        visualizer = new TFDataVisualizer(corpus.root);
+        //the visualizer prints to System.out, the table is formatted but thrown away
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public String toJson(Corpus corpus) {
+        return corpus.root.toJson();
+    }
+
+    @Benchmark
+    public String toYaml(Corpus corpus) {
+        return corpus.root.toYaml(2);
+    }
+
+    @Benchmark
+    public void printFormatted() {
+        visualizer.printFormatted();
+    }
+
+    @Benchmark
+    public long writeTable(Corpus corpus) throws IOException {
+        return new TFTableWriter(Writer.nullWriter(), TFTableFormat.DEFAULT).write(corpus.root, null, -1);
+    }
+}
@@ -0,0 +1,197 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Loads many files concurrently, for example every file in scripts/items or resource/ui.
+ * Files are read and parsed on virtual threads when the runtime supports them or on a bounded thread pool otherwise,
+ * the amount of files read at the same time is capped either way. A file that fails to load is recorded instead of aborting the batch
+ */
+public final class TFBulkLoader {
+
+    private Charset charset = StandardCharsets.UTF_8;
+    private TFParseOptions options = TFParseOptions.defaults();
+    private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads;
+
+    private TFBulkLoader() {
+    }
+
+    /**
+     * @return a new loader reading utf-8 files with default parse options on a bounded pool
+     */
+    public static TFBulkLoader create() {
+        return new TFBulkLoader();
+    }
+
+    /**
+     * Sets the charset used for files without a byte order mark
+     *
+     * @param charset the charset
+     * @return this loader
+     */
+    public TFBulkLoader charset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Sets how every file is parsed
+     *
+     * @param options the parse options
+     * @return this loader
+     */
+    public TFBulkLoader options(TFParseOptions options) {
+        this.options = options;
+        return this;
+    }
+
+    /**
+     * Sets how many files may be read and parsed at the same time, this is also the size of the thread pool if virtual threads are not used
+     *
+     * @param maxConcurrency the maximum amount of files loaded at once
+     * @return this loader
+     */
+    public TFBulkLoader maxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1, was " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets if every file should be loaded on its own virtual thread. Falls back to a bounded pool if the runtime has no virtual threads
+     *
+     * @param virtualThreads true to use virtual threads
+     * @return this loader
+     */
+    public TFBulkLoader virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Loads every regular file below a directory whose path relative to the directory matches the glob,
+     * "*.txt" only matches files directly in the directory, "**&#47;*.res" matches files in any sub directory
+     *
+     * @param directory the directory to search
+     * @param glob      the glob pattern to match relative paths against
+     * @return the loaded trees and the errors of files that failed
+     * @throws IOException if the directory could not be walked
+     */
+    public Result load(Path directory, String glob) throws IOException {
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(Files::isRegularFile).filter(file -> matcher.matches(directory.relativize(file))).sorted().collect(Collectors.toList());
+        }
+        return load(files);
+    }
+
+    /**
+     * Loads the given files
+     *
+     * @param files the files to load
+     * @return the loaded trees in the order of the given files and the errors of files that failed
+     */
+    public Result load(Collection<Path> files) {
+        Map<Path, TFDataObject> trees = new LinkedHashMap<>();
+        Map<Path, Exception> errors = new LinkedHashMap<>();
+        if (files.isEmpty()) {
+            return new Result(trees, errors);
+        }
+        Semaphore permits = new Semaphore(maxConcurrency);
+        ExecutorService executor = createExecutor(files.size());
+        try {
+            List<Map.Entry<Path, Future<TFDataObject>>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(Map.entry(file, executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return TFDataObject.from(file, charset, options);
+                    } finally {
+                        permits.release();
+                    }
+                })));
+            }
+            for (var entry : futures) {
+                try {
+                    trees.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    errors.put(entry.getKey(), (Exception) cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    errors.put(entry.getKey(), e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(trees, errors);
+    }
+
+    private ExecutorService createExecutor(int files) {
+        if (virtualThreads) {
+            try {
+                //looked up reflectively so the library keeps running on runtimes without virtual threads
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                //no virtual threads available, use the bounded pool instead
+            }
+        }
+        return Executors.newFixedThreadPool(Math.min(maxConcurrency, files));
+    }
+
+    /**
+     * Result of a bulk load
+     *
+     * @param trees  the loaded trees by file, in the order the files were given or found in
+     * @param errors the exception of every file that could not be loaded
+     */
+    public record Result(Map<Path, TFDataObject> trees, Map<Path, Exception> errors) {
+
+        public Result {
+            trees = Collections.unmodifiableMap(trees);
+            errors = Collections.unmodifiableMap(errors);
+        }
+
+        /**
+         * @return true if at least one file failed to load
+         */
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+
+        /**
+         * Merges all loaded trees into one, see {@link TFDataObject#merge(List)}
+         *
+         * @return the merged tree
+         */
+        public TFDataObject merged() {
+            return TFDataObject.merge(new ArrayList<>(trees.values()));
+        }
+    }
+}
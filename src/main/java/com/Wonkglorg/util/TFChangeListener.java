@@ -0,0 +1,30 @@
+package com.Wonkglorg.util;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/*
+ * Listener notified by a TFFileWatcher after a watched file changed and its tree was updated
+ */
+@FunctionalInterface
+public interface TFChangeListener {
+
+    /**
+     * Called on the watcher thread after a change was applied to the tree, while the tree is still locked
+     *
+     * @param file         the file that changed
+     * @param root         the updated root of the file, the same object that was returned when the file started being watched
+     * @param changedPaths the dotted paths relative to the root of every value or object that was added, removed or changed
+     */
+    void changed(Path file, TFDataObject root, List<String> changedPaths);
+
+    /**
+     * Called if a changed file could not be read or applied, or if {@link #changed(Path, TFDataObject, List)} of this listener threw.
+     * The watcher keeps running, the next change of the file reads it again
+     *
+     * @param file  the file that failed
+     * @param error the cause
+     */
+    default void failed(Path file, Exception error) {
+    }
+}
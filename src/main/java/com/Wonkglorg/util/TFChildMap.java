@@ -0,0 +1,540 @@
+package com.Wonkglorg.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/*
+ * Children of a TFDataObject in file order. Keys and children are stored inline in one array, which is scanned linearly while an object
+ * has few children, the common case. Past INDEX_THRESHOLD children an open addressing table of slot numbers is added so wide objects
+ * such as "items" keep constant time lookups. KeyValues allows a key to repeat, add() keeps every child under a key while the map view
+ * (get, put, iteration) sees the last one, as the game does for most keys. Removed slots are left empty and compacted on the next growth
+ */
+final class TFChildMap extends AbstractMap<String, TFDataObject> {
+
+    /**
+     * Children an object holds before lookups go through a hash table instead of a linear scan
+     */
+    static final int INDEX_THRESHOLD = 8;
+    //most objects hold one to three children
+    private static final int INITIAL_CAPACITY = 3;
+
+    /**
+     * Shared empty read only map of values and frozen objects without children
+     */
+    static final TFChildMap EMPTY = new TFChildMap();
+
+    static {
+        EMPTY.readOnly = true;
+    }
+
+    //key at 2 * slot, child at 2 * slot + 1, removed slots have a null key
+    private Object[] slots;
+    //earlier children of repeated keys by slot, only allocated once a key repeats
+    private TFDataObject[][] earlier;
+    //slot + 1 by hash, 0 for unused cells, only allocated past INDEX_THRESHOLD
+    private int[] table;
+    private int used;
+    private int size;
+    private int duplicates;
+    private boolean readOnly;
+    private EntrySet entrySet;
+    //the object holding this map, told about every change, null for maps that do not belong to a mutable object
+    private final TFDataObject owner;
+
+    TFChildMap() {
+        this.owner = null;
+    }
+
+    /**
+     * Creates the map of a mutable object
+     */
+    TFChildMap(TFDataObject owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Creates a map with room for a number of children
+     */
+    TFChildMap(int capacity) {
+        this.owner = null;
+        if (capacity > 0) {
+            slots = new Object[2 * capacity];
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && find((String) key) >= 0;
+    }
+
+    @Override
+    public TFDataObject get(Object key) {
+        if (!(key instanceof String)) return null;
+        int slot = find((String) key);
+        return slot < 0 ? null : child(slot);
+    }
+
+    /**
+     * Sets the only child under a key, earlier children under the same key are dropped
+     *
+     * @return the previous last child under the key or null
+     */
+    @Override
+    public TFDataObject put(String key, TFDataObject child) {
+        checkWritable();
+        changed(child);
+        int slot = find(key);
+        if (slot < 0) {
+            append(key, child);
+            return null;
+        }
+        TFDataObject previous = child(slot);
+        slots[2 * slot + 1] = child;
+        dropEarlier(slot);
+        return previous;
+    }
+
+    /**
+     * Adds a child, an existing child under the same key is kept in front of it
+     */
+    void add(String key, TFDataObject child) {
+        checkWritable();
+        changed(child);
+        int slot = find(key);
+        if (slot < 0) {
+            append(key, child);
+            return;
+        }
+        if (earlier == null) {
+            earlier = new TFDataObject[slots.length / 2][];
+        }
+        TFDataObject[] previous = earlier[slot];
+        previous = previous == null ? new TFDataObject[1] : Arrays.copyOf(previous, previous.length + 1);
+        previous[previous.length - 1] = child(slot);
+        earlier[slot] = previous;
+        slots[2 * slot + 1] = child;
+        duplicates++;
+    }
+
+    /**
+     * Replaces the last child under a key, earlier children under the same key are kept
+     */
+    void replaceLast(String key, TFDataObject child) {
+        checkWritable();
+        changed(child);
+        int slot = find(key);
+        if (slot < 0) {
+            append(key, child);
+        } else {
+            slots[2 * slot + 1] = child;
+        }
+    }
+
+    /**
+     * Replaces one of the children under a key
+     *
+     * @param occurrence the position of the child among the children under the key, see {@link #getAll(String)}
+     */
+    void replace(String key, int occurrence, TFDataObject child) {
+        checkWritable();
+        int slot = find(key);
+        TFDataObject[] previous = earlier == null || slot < 0 ? null : earlier[slot];
+        int count = slot < 0 ? 0 : previous == null ? 1 : previous.length + 1;
+        if (occurrence < 0 || occurrence >= count) {
+            throw new IndexOutOfBoundsException("No child " + occurrence + " under " + key);
+        }
+        changed(child);
+        if (occurrence == count - 1) {
+            slots[2 * slot + 1] = child;
+        } else {
+            previous[occurrence] = child;
+        }
+    }
+
+    /**
+     * Adds every child of another map, repeated keys included
+     */
+    void addAll(TFChildMap other) {
+        for (int slot = 0; slot < other.used; slot++) {
+            String key = other.key(slot);
+            if (key == null) continue;
+            if (other.earlier != null && other.earlier[slot] != null) {
+                for (TFDataObject child : other.earlier[slot]) {
+                    add(key, child);
+                }
+            }
+            add(key, other.child(slot));
+        }
+    }
+
+    /**
+     * Adds every child of another map whose object is dropped afterwards, its children then belong to the owner of this map
+     */
+    void moveAll(TFChildMap other) {
+        for (int slot = 0; slot < other.used; slot++) {
+            for (int i = 0; other.key(slot) != null && i < other.countAt(slot); i++) {
+                other.childAt(slot, i).detachFrom(other.owner);
+            }
+        }
+        addAll(other);
+    }
+
+    /**
+     * Gets every child under a key
+     *
+     * @return the children in the order they were added, empty if there is none
+     */
+    List<TFDataObject> getAll(String key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return List.of();
+        }
+        TFDataObject[] previous = earlier == null ? null : earlier[slot];
+        if (previous == null) {
+            return List.of(child(slot));
+        }
+        TFDataObject[] all = Arrays.copyOf(previous, previous.length + 1);
+        all[previous.length] = child(slot);
+        return List.of(all);
+    }
+
+    /**
+     * @return true if any key holds more than one child
+     */
+    boolean hasDuplicates() {
+        return duplicates > 0;
+    }
+
+    /**
+     * @return how many children the map holds, repeated keys included
+     */
+    int childCount() {
+        return size + duplicates;
+    }
+
+    @Override
+    public TFDataObject remove(Object key) {
+        checkWritable();
+        if (!(key instanceof String)) return null;
+        int slot = find((String) key);
+        if (slot < 0) {
+            return null;
+        }
+        TFDataObject previous = child(slot);
+        removeSlot(slot);
+        changed(null);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        changed(null);
+        slots = null;
+        earlier = null;
+        table = null;
+        used = 0;
+        size = 0;
+        duplicates = 0;
+    }
+
+    /**
+     * Makes every later modification throw, used for frozen objects
+     */
+    void readOnly() {
+        readOnly = true;
+    }
+
+    @Override
+    public Set<Entry<String, TFDataObject>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    //-------slot access, every child in file order including repeated keys ---------
+
+    /**
+     * @return the slots to look at, slots up to this may be removed
+     */
+    int slotLimit() {
+        return used;
+    }
+
+    /**
+     * @return the key of a slot or null if the slot was removed
+     */
+    String keyAt(int slot) {
+        return key(slot);
+    }
+
+    /**
+     * @return how many children the key of a slot holds
+     */
+    int countAt(int slot) {
+        TFDataObject[] previous = earlier == null ? null : earlier[slot];
+        return previous == null ? 1 : previous.length + 1;
+    }
+
+    /**
+     * @param occurrence the position of the child among the children under the key of the slot
+     * @return the child
+     */
+    TFDataObject childAt(int slot, int occurrence) {
+        TFDataObject[] previous = earlier == null ? null : earlier[slot];
+        return previous == null || occurrence == previous.length ? child(slot) : previous[occurrence];
+    }
+
+    //-------storage ---------
+
+    private String key(int slot) {
+        return (String) slots[2 * slot];
+    }
+
+    private TFDataObject child(int slot) {
+        return (TFDataObject) slots[2 * slot + 1];
+    }
+
+    /**
+     * @return the slot of a key or -1
+     */
+    private int find(String key) {
+        if (table == null) {
+            for (int slot = 0; slot < used; slot++) {
+                Object current = slots[2 * slot];
+                if (current == key || key.equals(current)) return slot;
+            }
+            return -1;
+        }
+        int mask = table.length - 1;
+        for (int cell = spread(key.hashCode()) & mask; table[cell] != 0; cell = (cell + 1) & mask) {
+            int slot = table[cell] - 1;
+            Object current = slots[2 * slot];
+            //cells of removed slots point to a null key and are probed past
+            if (current == key || key.equals(current)) return slot;
+        }
+        return -1;
+    }
+
+    private void append(String key, TFDataObject child) {
+        if (slots == null) {
+            slots = new Object[2 * INITIAL_CAPACITY];
+        } else if (2 * used == slots.length) {
+            if (used - size > used / 4) {
+                compact();
+            } else {
+                grow();
+            }
+        }
+        int slot = used++;
+        slots[2 * slot] = key;
+        slots[2 * slot + 1] = child;
+        size++;
+        if (table != null) {
+            if (2 * used > table.length) {
+                rebuildTable();
+            } else {
+                insertCell(key, slot);
+            }
+        } else if (size > INDEX_THRESHOLD) {
+            rebuildTable();
+        }
+    }
+
+    private void grow() {
+        int capacity = used * 2;
+        slots = Arrays.copyOf(slots, 2 * capacity);
+        if (earlier != null) {
+            earlier = Arrays.copyOf(earlier, capacity);
+        }
+    }
+
+    /**
+     * Moves the remaining children over the removed slots
+     */
+    private void compact() {
+        int target = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (slots[2 * slot] == null) continue;
+            slots[2 * target] = slots[2 * slot];
+            slots[2 * target + 1] = slots[2 * slot + 1];
+            if (earlier != null) earlier[target] = earlier[slot];
+            target++;
+        }
+        Arrays.fill(slots, 2 * target, 2 * used, null);
+        if (earlier != null) {
+            Arrays.fill(earlier, target, used, null);
+        }
+        used = target;
+        if (table != null) {
+            rebuildTable();
+        }
+    }
+
+    private void rebuildTable() {
+        int capacity = Integer.highestOneBit(Math.max(used, INDEX_THRESHOLD) * 4 - 1);
+        table = new int[capacity];
+        for (int slot = 0; slot < used; slot++) {
+            String key = key(slot);
+            if (key != null) insertCell(key, slot);
+        }
+    }
+
+    private void insertCell(String key, int slot) {
+        int mask = table.length - 1;
+        int cell = spread(key.hashCode()) & mask;
+        while (table[cell] != 0) {
+            cell = (cell + 1) & mask;
+        }
+        table[cell] = slot + 1;
+    }
+
+    private void removeSlot(int slot) {
+        slots[2 * slot] = null;
+        slots[2 * slot + 1] = null;
+        dropEarlier(slot);
+        size--;
+        if (size == 0) {
+            //nothing left to keep in order, start over without removed slots
+            clear();
+        }
+    }
+
+    private void dropEarlier(int slot) {
+        if (earlier != null && earlier[slot] != null) {
+            duplicates -= earlier[slot].length;
+            earlier[slot] = null;
+        }
+    }
+
+    /**
+     * Tells the owner that its children changed, a child that was put into the map passes its own changes on to the owner from now on
+     */
+    private void changed(TFDataObject child) {
+        if (owner == null) return;
+        if (child != null) child.attachTo(owner);
+        owner.contentChanged();
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("The children of frozen objects are read only");
+        }
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+
+    //-------map view ---------
+
+    private final class EntrySet extends AbstractSet<Entry<String, TFDataObject>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Entry<String, TFDataObject>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, TFDataObject>> {
+        private int next = skipRemoved(0);
+        private int last = -1;
+
+        private int skipRemoved(int slot) {
+            while (slot < used && slots[2 * slot] == null) slot++;
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < used;
+        }
+
+        @Override
+        public Entry<String, TFDataObject> next() {
+            if (next >= used) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = skipRemoved(next + 1);
+            return new SlotEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkWritable();
+            //removing the last child clears the map, which iteration then sees as done
+            removeSlot(last);
+            changed(null);
+            last = -1;
+        }
+    }
+
+    private final class SlotEntry implements Entry<String, TFDataObject> {
+        private final int slot;
+
+        private SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getKey() {
+            return key(slot);
+        }
+
+        @Override
+        public TFDataObject getValue() {
+            return child(slot);
+        }
+
+        @Override
+        public TFDataObject setValue(TFDataObject value) {
+            checkWritable();
+            changed(value);
+            TFDataObject previous = child(slot);
+            slots[2 * slot + 1] = value;
+            dropEarlier(slot);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry && getKey().equals(((Map.Entry<?, ?>) o).getKey()) && Objects.equals(getValue(), ((Map.Entry<?, ?>) o).getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Read only document that stores a whole tree as parallel primitive arrays instead of one TFDataObject per node.
+ * Every node is a parent, first child, next sibling, key id and value range, keys live in a shared key table and
+ * all values in a single char arena, which makes a node cost a few ints instead of a full object with its own map.
+ * TFDataObject views over a document are created on demand, they can be read like any other object but not modified.
+ * Nodes with more than TFChildMap.INDEX_THRESHOLD children get their children sorted by key id at build time, so finding a child
+ * of a wide object such as "items" is a binary search instead of a walk over every sibling
+ */
+public final class TFCompactDocument {
+
+    private static final int NONE = -1;
+    //short values are deduplicated inside the arena while building
+    private static final int MAX_SHARED_VALUE_LENGTH = 64;
+
+    private final String rootKey;
+    private final int size;
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] keyId;
+    private final int[] valueOffset;
+    private final int[] valueLength;
+    private final String[] keys;
+    private final Map<String, Integer> keyIds;
+    private final char[] arena;
+    //nodes with a child index in ascending order and where their index starts in lookup
+    private final int[] indexedNodes;
+    private final int[] indexStart;
+    //per indexed node the child count, the key ids in ascending order and the children in the same order
+    private final int[] lookup;
+    //structural hashes by node, 0 until computed, only allocated once a hash is asked for
+    private volatile AtomicLongArray hashes;
+
+    private TFCompactDocument(Builder builder) {
+        this.rootKey = builder.rootKey;
+        this.size = builder.size;
+        this.parent = Arrays.copyOf(builder.parent, size);
+        this.firstChild = Arrays.copyOf(builder.firstChild, size);
+        this.nextSibling = Arrays.copyOf(builder.nextSibling, size);
+        this.keyId = Arrays.copyOf(builder.keyId, size);
+        this.valueOffset = Arrays.copyOf(builder.valueOffset, size);
+        this.valueLength = Arrays.copyOf(builder.valueLength, size);
+        this.keys = builder.keys.toArray(new String[0]);
+        this.keyIds = builder.keyIds;
+        this.arena = Arrays.copyOf(builder.arena, builder.arenaSize);
+
+        int[] childCount = new int[size];
+        int indexed = 0;
+        int lookupSize = 0;
+        for (int node = 1; node < size; node++) {
+            if (++childCount[parent[node]] == TFChildMap.INDEX_THRESHOLD + 1) {
+                indexed++;
+                lookupSize += 1 + 2 * (TFChildMap.INDEX_THRESHOLD + 1);
+            } else if (childCount[parent[node]] > TFChildMap.INDEX_THRESHOLD) {
+                lookupSize += 2;
+            }
+        }
+        this.indexedNodes = new int[indexed];
+        this.indexStart = new int[indexed];
+        this.lookup = new int[lookupSize];
+        int next = 0;
+        int position = 0;
+        for (int node = 0; node < size && next < indexed; node++) {
+            int count = childCount[node];
+            if (count <= TFChildMap.INDEX_THRESHOLD) continue;
+            indexedNodes[next] = node;
+            indexStart[next++] = position;
+            lookup[position] = count;
+            //key id in the high half, siblings are numbered in file order so repeated keys stay in order
+            long[] sorted = new long[count];
+            int i = 0;
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                sorted[i++] = ((long) keyId[child] << 32) | child;
+            }
+            Arrays.sort(sorted);
+            for (i = 0; i < count; i++) {
+                lookup[position + 1 + i] = (int) (sorted[i] >>> 32);
+                lookup[position + 1 + count + i] = (int) sorted[i];
+            }
+            position += 1 + 2 * count;
+        }
+    }
+
+    /**
+     * Creates a compact document from an input without building a TFDataObject tree first
+     *
+     * @param input the input to parse
+     * @return a new document
+     */
+    public static TFCompactDocument from(TFInput input) {
+        Builder builder = new Builder();
+        TFReader.read(input, builder);
+        return builder.build();
+    }
+
+    /**
+     * Creates a compact document from a file
+     *
+     * @param path    the path to the file
+     * @param charset the charset to use if the file has no byte order mark
+     * @return a new document
+     * @throws UncheckedIOException if the file could not be read
+     */
+    public static TFCompactDocument from(Path path, Charset charset) {
+        try {
+            return from(TFInput.open(path, charset));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a compact copy of an existing tree
+     *
+     * @param object the tree to copy
+     * @return a new document
+     */
+    public static TFCompactDocument of(TFDataObject object) {
+        Builder builder = new Builder();
+        builder.rootKey = object.getKey();
+        //the root already exists, everything copied below it are regular children
+        builder.depth = 1;
+        copyChildren(object, builder);
+        return builder.build();
+    }
+
+    private static void copyChildren(TFDataObject object, Builder builder) {
+        TFChildMap children = object.getContentMap();
+        for (int slot = 0; slot < children.slotLimit(); slot++) {
+            String key = children.keyAt(slot);
+            for (int i = 0; key != null && i < children.countAt(slot); i++) {
+                TFDataObject child = children.childAt(slot, i);
+                if (child.isValue()) {
+                    builder.keyValue(key, child.getValue());
+                } else {
+                    builder.startObject(key);
+                    copyChildren(child, builder);
+                    builder.endObject();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a read only TFDataObject view of the root of this document
+     */
+    public TFDataObject root() {
+        return new TFDataObject(this, 0);
+    }
+
+    /**
+     * @return the amount of nodes in this document including the root
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the estimated amount of heap retained by this document in bytes, excluding the key lookup table
+     */
+    public long estimatedSize() {
+        long bytes = 6L * (16 + 4L * size);
+        bytes += 3 * 16 + 4L * (indexedNodes.length + indexStart.length + lookup.length);
+        bytes += 16 + 2L * arena.length;
+        if (hashes != null) {
+            bytes += 16 + 8L * size;
+        }
+        bytes += 16 + 4L * keys.length;
+        for (String key : keys) {
+            bytes += 40 + key.length();
+        }
+        return bytes;
+    }
+
+    //-------node access ---------
+
+    /**
+     * @return the cached structural hash of a node or 0 if it was not computed yet
+     */
+    long hash(int node) {
+        AtomicLongArray cached = hashes;
+        return cached == null ? 0 : cached.get(node);
+    }
+
+    void cacheHash(int node, long hash) {
+        AtomicLongArray cached = hashes;
+        if (cached == null) {
+            synchronized (this) {
+                if (hashes == null) {
+                    hashes = new AtomicLongArray(size);
+                }
+                cached = hashes;
+            }
+        }
+        cached.set(node, hash);
+    }
+
+    String key(int node) {
+        return node == 0 ? rootKey : keys[keyId[node]];
+    }
+
+    boolean isValue(int node) {
+        return valueOffset[node] != NONE;
+    }
+
+    String value(int node) {
+        int offset = valueOffset[node];
+        return offset == NONE ? null : new String(arena, offset, valueLength[node]);
+    }
+
+    int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * Finds a direct child by its key, if the key is repeated the last occurrence wins like it does when parsing into a map
+     *
+     * @param node the node to search in
+     * @param key  the key of the child
+     * @return the index of the child or -1 if it does not exist
+     */
+    int findChild(int node, String key) {
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            return NONE;
+        }
+        int wanted = id;
+        int indexed = Arrays.binarySearch(indexedNodes, node);
+        if (indexed < 0) {
+            int found = NONE;
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (keyId[child] == wanted) {
+                    found = child;
+                }
+            }
+            return found;
+        }
+        int start = indexStart[indexed];
+        int count = lookup[start];
+        //the last entry with the key id, the entries of a repeated key are in file order
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lookup[start + 1 + middle] <= wanted) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low > 0 && lookup[start + low] == wanted ? lookup[start + count + low] : NONE;
+    }
+
+    /**
+     * Finds every direct child under a key in file order
+     *
+     * @param node the node to search in
+     * @param key  the key of the children
+     * @return the indices of the children, empty if there is none
+     */
+    int[] findChildren(int node, String key) {
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            return new int[0];
+        }
+        int wanted = id;
+        int indexed = Arrays.binarySearch(indexedNodes, node);
+        if (indexed < 0) {
+            int[] found = new int[2];
+            int count = 0;
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (keyId[child] != wanted) continue;
+                if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                found[count++] = child;
+            }
+            return Arrays.copyOf(found, count);
+        }
+        int start = indexStart[indexed];
+        int count = lookup[start];
+        //the entries of a key are next to each other, the first one is found like in findChild
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lookup[start + 1 + middle] < wanted) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int last = low;
+        while (last < count && lookup[start + 1 + last] == wanted) {
+            last++;
+        }
+        return Arrays.copyOfRange(lookup, start + 1 + count + low, start + 1 + count + last);
+    }
+
+    /**
+     * Builds the path of a node the same way the tree parser does, the dotted path of its parent including the root key
+     *
+     * @param node the node
+     * @return the path of the node
+     */
+    String path(int node) {
+        if (node == 0) {
+            return "";
+        }
+        return fullPath(parent[node]);
+    }
+
+    private String fullPath(int node) {
+        if (node == 0) {
+            return rootKey == null ? "" : rootKey;
+        }
+        String parentPath = fullPath(parent[node]);
+        return parentPath.isEmpty() ? key(node) : parentPath + "." + key(node);
+    }
+
+    /**
+     * Creates views for all direct children of a node, repeated keys included, the view of the node keeps the map
+     *
+     * @param node the node
+     * @return a read only map of the children
+     */
+    TFChildMap childMap(int node) {
+        TFChildMap children = new TFChildMap();
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            children.add(key(child), new TFDataObject(this, child));
+        }
+        children.readOnly();
+        return children;
+    }
+
+    //-------building ---------
+
+    private static final class Builder implements TFVisitor {
+        private String rootKey;
+        private int size;
+        private int[] parent = new int[64];
+        private int[] firstChild = new int[64];
+        private int[] lastChild = new int[64];
+        private int[] nextSibling = new int[64];
+        private int[] keyId = new int[64];
+        private int[] valueOffset = new int[64];
+        private int[] valueLength = new int[64];
+        private final List<String> keys = new ArrayList<>();
+        private final Map<String, Integer> keyIds = new HashMap<>();
+        private final Map<String, Integer> sharedValues = new HashMap<>();
+        private char[] arena = new char[1024];
+        private int arenaSize;
+
+        private int current;
+        private int depth;
+
+        private Builder() {
+            addNode(NONE, null, null);
+        }
+
+        @Override
+        public boolean startObject(String key) {
+            if (depth == 0) {
+                //top level objects are unwrapped into the root
+                if (rootKey == null) {
+                    rootKey = key;
+                }
+            } else {
+                current = addNode(current, key, null);
+            }
+            depth++;
+            return true;
+        }
+
+        @Override
+        public void keyValue(String key, String value) {
+            addNode(current, key, value);
+        }
+
+        @Override
+        public void endObject() {
+            depth--;
+            if (depth > 0) {
+                current = parent[current];
+            }
+        }
+
+        private int addNode(int parentNode, String key, String value) {
+            if (size == parent.length) {
+                int capacity = size * 2;
+                parent = Arrays.copyOf(parent, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                lastChild = Arrays.copyOf(lastChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                keyId = Arrays.copyOf(keyId, capacity);
+                valueOffset = Arrays.copyOf(valueOffset, capacity);
+                valueLength = Arrays.copyOf(valueLength, capacity);
+            }
+            int node = size++;
+            parent[node] = parentNode;
+            firstChild[node] = NONE;
+            lastChild[node] = NONE;
+            nextSibling[node] = NONE;
+            keyId[node] = key == null ? NONE : keyId(key);
+            if (value == null) {
+                valueOffset[node] = NONE;
+                valueLength[node] = 0;
+            } else {
+                valueOffset[node] = appendValue(value);
+                valueLength[node] = value.length();
+            }
+            if (parentNode != NONE) {
+                if (lastChild[parentNode] == NONE) {
+                    firstChild[parentNode] = node;
+                } else {
+                    nextSibling[lastChild[parentNode]] = node;
+                }
+                lastChild[parentNode] = node;
+            }
+            return node;
+        }
+
+        private int keyId(String key) {
+            Integer id = keyIds.get(key);
+            if (id == null) {
+                id = keys.size();
+                keys.add(key);
+                keyIds.put(key, id);
+            }
+            return id;
+        }
+
+        private int appendValue(String value) {
+            boolean shared = value.length() <= MAX_SHARED_VALUE_LENGTH;
+            if (shared) {
+                Integer offset = sharedValues.get(value);
+                if (offset != null) {
+                    return offset;
+                }
+            }
+            if (arenaSize + value.length() > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + value.length()));
+            }
+            int offset = arenaSize;
+            value.getChars(0, value.length(), arena, offset);
+            arenaSize += value.length();
+            if (shared) {
+                sharedValues.put(value, offset);
+            }
+            return offset;
+        }
+
+        private TFCompactDocument build() {
+            return new TFCompactDocument(this);
+        }
+    }
+}
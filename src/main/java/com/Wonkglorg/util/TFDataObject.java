@@ -1,15 +1,21 @@
 package com.Wonkglorg.util;
 
-import org.wonkglorg.files.readwrite.TxtFileUtil;
-
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /*
  * Represents a data object that can be nested in a json like format original to tf2 files
@@ -21,15 +27,49 @@ public class TFDataObject {
     private String value;
     private String key;
     private String path;
-    private final Map<String, TFDataObject> contentMap = new HashMap<>();
-
-    private TFDataObject(String path, String key, String value) {
+    //created on the first child, values never get one
+    private TFChildMap contentMap;
+    //lazy source, compact view, value index and caches, only the few objects that use any of them get one
+    private Extras extras;
+    //set once this object was put into the child map of an object other than its parent, changes to it are then seen by several trees
+    private boolean borrowed;
+    //set if this object and everything below it can never change again
+    private boolean frozen;
+    //the object whose child map this one was put into first, it is the only object writing through to it, every other
+    //object holding it copies it before writing, a change below this object drops the cached hashes up this chain
+    private TFDataObject parent;
+    //counts changes that are seen by more than one tree, they can not be followed up a single parent chain
+    private static final AtomicLong SHARED_WRITES = new AtomicLong(1);
+    private static final int[] NOT_A_COLOR = new int[0];
+    private static final float[] NOT_A_VECTOR = new float[0];
+
+    TFDataObject(String path, String key, String value) {
         this.value = value;
         this.key = key;
         this.path = path;
         isValue = value != null;
     }
 
+    TFDataObject(String path, String key, TFLazyLoader source, int sourceStart, int sourceEnd) {
+        this.path = path;
+        this.key = key;
+        Extras extras = new Extras();
+        extras.source = source;
+        extras.sourceStart = sourceStart;
+        extras.sourceEnd = sourceEnd;
+        this.extras = extras;
+        isValue = false;
+    }
+
+    TFDataObject(TFCompactDocument document, int node) {
+        Extras extras = new Extras();
+        extras.document = document;
+        extras.node = node;
+        this.extras = extras;
+        this.key = document.key(node);
+        isValue = document.isValue(node);
+    }
+
     private TFDataObject(String path, String key, List<String> content) {
         this.path = path;
         this.key = key;
@@ -38,81 +78,153 @@ public class TFDataObject {
     }
 
     /**
-     * Creates a new DataObject from a list of strings if they match a valid format as tf2 layed it out (new lines matter unlike json)
+     * Creates a new DataObject from a list of strings if they match a valid format as tf2 layed it out
      *
      * @param content the content to parse
      * @return a new DataObject
      */
     public static TFDataObject from(List<String> content) {
+        return TFTreeBuilder.build(TFInput.of(String.join("\n", content)), null);
+    }
+
+    /**
+     * Creates a new DataObject from raw text using the single pass tokenizer
+     *
+     * @param content the content to parse
+     * @return a new DataObject
+     */
+    public static TFDataObject from(CharSequence content) {
+        return TFTreeBuilder.build(TFInput.of(content), null);
+    }
+
+    /**
+     * Creates a new DataObject from an input, keys and values are decoded straight from the input without building lines first
+     *
+     * @param input the input to parse
+     * @return a new DataObject
+     */
+    public static TFDataObject from(TFInput input) {
+        return TFTreeBuilder.build(input, null);
+    }
+
+    /**
+     * Creates a new DataObject from an input
+     *
+     * @param input   the input to parse
+     * @param options how the input should be parsed
+     * @return a new DataObject
+     */
+    public static TFDataObject from(TFInput input, TFParseOptions options) {
+        TFStringPool pool = options.parsePool();
+        if (options.isLazy()) {
+            //the pool stays with the tree until every object has been read
+            return TFLazyLoader.load(input, pool == null ? null : pool.forParse(false));
+        }
+        if (options.getForkJoinPool() != null) {
+            return TFParallelParser.parse(input, pool, options.getForkJoinPool());
+        }
+        if (pool == null) {
+            return TFTreeBuilder.build(input, null);
+        }
+        TFStringPool parsePool = pool.forParse(false);
+        try {
+            return TFTreeBuilder.build(input, parsePool);
+        } finally {
+            parsePool.release();
+        }
+    }
+
+    /**
+     * Creates a new DataObject using the old line based parser, only kept for comparison with {@link #from(List)}
+     * (new lines matter unlike json)
+     *
+     * @param content the content to parse
+     * @return a new DataObject
+     */
+    public static TFDataObject fromLegacy(List<String> content) {
         return new TFDataObject("", "", content);
     }
 
     /**
-     * Creates a new DataObject from a file
+     * Creates a new DataObject from a file, the file is memory mapped and parsed straight from its bytes.
+     * A byte order mark takes precedence over the charset so utf-8 and utf-16 files (such as tf_english.txt) can both be read
      *
      * @param path    the path to the file
-     * @param charset the charset to use
+     * @param charset the charset to use if the file has no byte order mark
      * @return a new DataObject
+     * @throws UncheckedIOException if the file could not be read
      */
     public static TFDataObject from(Path path, Charset charset) {
-        return new TFDataObject("", "", TxtFileUtil.readFromFile(path.toFile(), charset));
+        return from(path, charset, TFParseOptions.defaults());
+    }
+
+    /**
+     * Creates a new DataObject from a file
+     *
+     * @param path    the path to the file
+     * @param charset the charset to use if the file has no byte order mark
+     * @param options how the file should be parsed
+     * @return a new DataObject
+     * @throws UncheckedIOException if the file could not be read
+     */
+    public static TFDataObject from(Path path, Charset charset, TFParseOptions options) {
+        if (options.isSnapshots()) {
+            return TFSnapshot.load(path, charset, options);
+        }
+        try {
+            return from(TFInput.open(path, charset), options);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
      * Creates a new DataObject from a file
      *
      * @param path    the path to the file
-     * @param charset the charset to use
+     * @param charset the charset to use if the file has no byte order mark
      * @return a new DataObject
+     * @throws UncheckedIOException if the file could not be read
      */
     public static TFDataObject from(String path, Charset charset) {
-        return new TFDataObject("", "", TxtFileUtil.readFromFile(path, charset));
+        return from(Paths.get(path), charset);
     }
 
     /**
-     * Merges multiple DataObjects into one where the returned object represents a new root with updated sub paths matching the new structure
+     * Deep merges multiple DataObjects into a new root, objects under the same key are merged recursively and the later value wins on collisions.
+     * Subtrees only present in one of the objects are shared with the result instead of being copied, the inputs stay unchanged and writable.
+     * {@link #add(String, String, String)}, {@link #get(String)} and {@link #getAll(String)} of the result copy objects of the inputs before
+     * they can be changed. Objects reached through queries and streams are not copied, and later changes to the inputs show through
+     * in the parts of the result that still share them
      *
      * @param objects the objects to merge
      * @return a new DataObject
      */
     public static TFDataObject merge(TFDataObject... objects) {
-        TFDataObject merged = TFDataObject.from(new ArrayList<>());
-        for (TFDataObject object : objects) {
-            if (object == null) continue;
-
-            mergeRecursive(object, "", merged);
-        }
-        return merged;
-    }
-
-    private static void mergeRecursive(TFDataObject object, String basePath, TFDataObject merged) {
-        if (object.isValue) {
-            merged.contentMap.put(basePath, object);
-        } else {
-            for (var entry : object.contentMap.entrySet()) {
-                String key = entry.getKey();
-                TFDataObject value = entry.getValue();
-                String newPath = basePath.isEmpty() ? key : basePath + "." + key;
-                if (merged.contentMap.containsKey(newPath)) {
-                    mergeRecursive(value, newPath, merged);
-                } else {
-                    merged.contentMap.put(newPath, value);
-                }
-            }
-        }
+        return TFMerger.merge(TFMergePolicy.LAST_WINS, objects);
     }
 
     /**
-     * Merges multiple DataObjects into one where the returned object represents a new root with updated sub paths matching the new structure
+     * Deep merges multiple DataObjects into a new root, see {@link #merge(TFDataObject...)}
      *
      * @param objects the objects to merge
      * @return a new DataObject
      */
-
     public static TFDataObject merge(List<TFDataObject> objects) {
         return merge(objects.toArray(new TFDataObject[0]));
     }
 
+    /**
+     * Deep merges multiple DataObjects into a new root, see {@link #merge(TFDataObject...)}
+     *
+     * @param policy  what to do when both sides have an entry under the same key and at least one of them is a value
+     * @param objects the objects to merge
+     * @return a new DataObject
+     */
+    public static TFDataObject merge(TFMergePolicy policy, TFDataObject... objects) {
+        return TFMerger.merge(policy, objects);
+    }
+
     //matches any word enclosed in quotes
     private static final Pattern keyWordPattern = Pattern.compile("\"([^\"]+)\"");
 
@@ -150,7 +262,7 @@ public class TFDataObject {
                         String value = matcher.group(1);
                         String newPath = String.join(".", pathStack);
                         TFDataObject dataObject = new TFDataObject(newPath, newKey, value);
-                        contentMap.put(newKey, dataObject);
+                        getContentMap().put(newKey, dataObject);
                         key = null;
                     }
 
@@ -180,7 +292,7 @@ public class TFDataObject {
                     //adds the final } line to the map otherwise its mismatched formatting
                     addStringElementToMap(key, line, childContentMap);
                     TFDataObject dataObject = new TFDataObject(newPath, key, childContentMap.get(key));
-                    contentMap.put(key, dataObject);
+                    getContentMap().put(key, dataObject);
                     childContentMap.clear();
                     key = null;
                     continue;
@@ -195,7 +307,7 @@ public class TFDataObject {
                         key = tempKey;
                         String value = matcher.group(1);
                         TFDataObject dataObject = new TFDataObject(path, key, value);
-                        contentMap.put(key, dataObject);
+                        getContentMap().put(key, dataObject);
                     } else {
                         //should only ever happen once, if not then the file is not formatted correctly and any errors should not be dealt with on my end
                         baseKey = tempKey;
@@ -228,12 +340,14 @@ public class TFDataObject {
      * @param path  the path to add the key value pair to
      * @param key   the key
      * @param value the value
+     * @throws IllegalArgumentException if the path runs through a value
      */
     public void add(String path, String key, String value) {
+        checkMutable();
         String[] paths = path.split("\\.");
 
         if (paths.length == 0) {
-            contentMap.put(key, new TFDataObject("", key, value));
+            putChild(this, key, new TFDataObject("", key, value));
             return;
         }
 
@@ -241,431 +355,1337 @@ public class TFDataObject {
     }
 
     private void recursiveAdd(String[] paths, String key, String value, int depth, TFDataObject dataObject, String currentPath) {
+        if (dataObject.isValue()) {
+            throw new IllegalArgumentException("Can not add " + key + " below the value " + (currentPath.isEmpty() ? dataObject.getKey() : currentPath));
+        }
         if (depth == paths.length) {
-            dataObject.getContentMap().put(key, new TFDataObject(currentPath, key, value));
+            putChild(dataObject, key, new TFDataObject(currentPath, key, value));
             return;
         }
 
         String currentKey = paths[depth];
         String newPath = currentPath.isEmpty() ? currentKey : currentPath + "." + currentKey;
 
-        if (!dataObject.getContentMap().containsKey(currentKey)) {
-            dataObject.getContentMap().put(currentKey, new TFDataObject(newPath, currentKey, (String) null));
+        TFDataObject child = dataObject.getContentMap().get(currentKey);
+        if (child == null) {
+            child = new TFDataObject(newPath, currentKey, (String) null);
+            putChild(dataObject, currentKey, child);
+        } else {
+            child = dataObject.unshare(currentKey, child, -1, currentPath);
+        }
+
+        recursiveAdd(paths, key, value, depth + 1, child, newPath);
+    }
+
+    /**
+     * Replaces a child this object does not own by a private copy so changes below it never reach the tree it belongs to
+     *
+     * @param key        the key of the child
+     * @param child      the child
+     * @param occurrence which child under the key it is, -1 for the last
+     * @param path       the path of the copy
+     * @return the child itself if this object owns it, otherwise the copy
+     */
+    private TFDataObject unshare(String key, TFDataObject child, int occurrence, String path) {
+        if (owns(child)) {
+            return child;
+        }
+        TFDataObject copy = child.copyForWrite(path);
+        if (occurrence < 0) {
+            getChildMap().replaceLast(key, copy);
+        } else {
+            getChildMap().replace(key, occurrence, copy);
+        }
+        TFValueIndex index = getIndex();
+        if (index != null) {
+            index.copied(child, copy);
         }
+        return copy;
+    }
+
+    /**
+     * Checks if children reached through this object may be replaced by private copies, which is not the case for read only objects
+     */
+    private boolean unsharesChildren() {
+        return !isView() && !frozen;
+    }
 
-        recursiveAdd(paths, key, value, depth + 1, dataObject.getContentMap().get(currentKey), newPath);
+    /**
+     * Puts a child into an object and updates the value index of the tree if it has one
+     */
+    private static void putChild(TFDataObject parent, String key, TFDataObject child) {
+        TFChildMap children = parent.getContentMap();
+        //put drops every child under the key, the index has to forget all of them
+        TFValueIndex index = parent.getIndex();
+        List<TFDataObject> replaced = index == null ? null : children.getAll(key);
+        children.put(key, child);
+        if (index != null) {
+            index.added(parent, key, child, replaced);
+        }
     }
 
     /**
-     * Gets all children with 0 depth from the current data object
+     * Gets all children with 0 depth from the current data object, removing a key removes the child
      *
      * @return
      */
     public Set<String> getChildren() {
-        if (contentMap.isEmpty() || isValue) {
+        if (getContentMap().isEmpty() || isValue) {
             return Set.of();
         }
-        return contentMap.keySet();
+        return getContentMap().keySet();
     }
 
     /**
      * Gets a child from the current data object, can be a path to any object below it.
+     * Objects along the path that belong to another tree, for example after a merge or thaw, are replaced by private copies
+     * first, so the result can be modified without changing the other tree
      *
-     * @param path
-     * @return
+     * @param path the dotted path to the child
+     * @return the child or null if any key along the path does not exist
      */
     public TFDataObject get(String path) {
-        return getSubPath(contentMap, path.split("\\."));
+        return get(TFPath.of(path));
     }
 
     /**
-     * Checks if the current data object contains a key
+     * Gets a child from the current data object using a precompiled path, see {@link #get(String)}
      *
-     * @param path
-     * @return
+     * @param path the path to the child
+     * @return the child or null if any key along the path does not exist
      */
-    public boolean containsKey(String path) {
-        return getSubPath(contentMap, path.split("\\.")) != null;
-    }
-
-    private TFDataObject getSubPath(Map<String, TFDataObject> dataMap, String[] keys) {
-        if (keys.length == 0 || dataMap == null) {
-            return null;
+    public TFDataObject get(TFPath path) {
+        if (!unsharesChildren()) {
+            return getSubPath(path);
         }
-        String currentKey = keys[0];
-        TFDataObject childObject = dataMap.get(currentKey);
-
-        if (keys.length == 1) {
-            return childObject;
+        TFDataObject current = this;
+        for (int i = 0; i < path.size() && current != null; i++) {
+            String segment = path.segment(i);
+            TFDataObject child = current.getContentMap().get(segment);
+            current = child == null ? null : current.unshare(segment, child, -1, child.getPath());
         }
-
-        return getSubPath((childObject).getContentMap(), Arrays.copyOfRange(keys, 1, keys.length));
+        if (TFMetrics.isEnabled()) {
+            TFMetrics.lookup(current != null);
+        }
+        return current;
     }
 
-
     /**
-     * Gets the current objects key
+     * Checks if the current data object contains a key
      *
-     * @return
+     * @param path the dotted path to check
+     * @return true if an object exists at the path
      */
-    public String getKey() {
-        return key;
+    public boolean containsKey(String path) {
+        return getSubPath(TFPath.of(path)) != null;
     }
 
     /**
-     * Gets a value from the specified path by its key
+     * Checks if the current data object contains a key
      *
-     * @param path
-     * @param key
-     * @return
+     * @param path the path to check
+     * @return true if an object exists at the path
      */
-    public String getValue(String path, String key) {
+    public boolean containsKey(TFPath path) {
+        return getSubPath(path) != null;
+    }
 
-        TFDataObject dataObject = getSubPath(contentMap, path.split("\\."));
-        if (dataObject == null) {
-            return null;
+    private TFDataObject getSubPath(TFPath path) {
+        TFDataObject found = findSubPath(path);
+        if (TFMetrics.isEnabled()) {
+            TFMetrics.lookup(found != null);
         }
-        return dataObject.get(key).getValue();
+        return found;
     }
 
-    /**
-     * Gets the current objects value
-     *
-     * @param defaultValue the default value to return if no value is present
-     * @return the value
-     */
-    public String getValue(String defaultValue) {
-        if (isValue) {
-            if (value == null) {
-                return defaultValue;
+    private TFDataObject findSubPath(TFPath path) {
+        if (isView()) {
+            TFCompactDocument document = extras.document;
+            int node = extras.node;
+            int current = node;
+            for (int i = 0; i < path.size() && current >= 0; i++) {
+                current = document.findChild(current, path.segment(i));
             }
-            return value;
+            if (current < 0) return null;
+            return current == node ? this : new TFDataObject(document, current);
         }
-        return defaultValue;
+        TFDataObject current = this;
+        for (int i = 0; i < path.size() && current != null; i++) {
+            current = current.getContentMap().get(path.segment(i));
+        }
+        return current;
     }
 
     /**
-     * @return the associated value of the current object or null
+     * Gets a direct child without going through the child map, compact views search the document directly
      */
-    public String getValue() {
-        if (isValue) return value;
-        return null;
+    TFDataObject getChild(String key) {
+        if (isView()) {
+            int child = extras.document.findChild(extras.node, key);
+            return child < 0 ? null : new TFDataObject(extras.document, child);
+        }
+        return getContentMap().get(key);
     }
 
     /**
-     * Gets a value from the specified path by its key
-     *
-     * @param path         the path to the value
-     * @param key          the key of the value
-     * @param defaultValue the default value to return if no value is present
-     * @return
+     * Gets every direct child under a key without copying the ones this object does not own like {@link #getAll(String)} does, compact views search the document directly
      */
-    public String getValue(String path, String key, String defaultValue) {
-        TFDataObject dataObject = getSubPath(contentMap, path.split("\\."));
-        if (dataObject == null) {
-            return defaultValue;
+    List<TFDataObject> childrenUnder(String key) {
+        if (isView()) {
+            int[] children = extras.document.findChildren(extras.node, key);
+            List<TFDataObject> views = new ArrayList<>(children.length);
+            for (int child : children) {
+                views.add(new TFDataObject(extras.document, child));
+            }
+            return views;
         }
-        return dataObject.get(key).getValue(defaultValue);
+        return getContentMap().getAll(key);
     }
 
-    private Map<String, TFDataObject> getContentMap() {
-        return contentMap;
+    /**
+     * Gets a hash of the keys and values of this object and everything below it, the own key and path are not part of it.
+     * Objects with the same content have the same hash regardless of the order their children were added in.
+     * The hash is computed bottom up and cached, frozen trees and compact documents keep their hashes forever while a change
+     * of a mutable object only drops the cached hashes of the objects above it
+     *
+     * @return the 64 bit structural hash
+     */
+    public long structuralHash() {
+        boolean view = isView();
+        if (view) {
+            //views are created on every lookup, their hashes are kept by the document
+            long cached = extras.document.hash(extras.node);
+            if (cached != 0) {
+                return cached;
+            }
+        }
+        long epoch = SHARED_WRITES.get();
+        Extras cache = extras;
+        if (cache != null) {
+            long cachedEpoch = cache.hashEpoch;
+            if (cachedEpoch != 0 && (cachedEpoch == epoch || frozen)) {
+                return cache.hash;
+            }
+        }
+        long computed;
+        if (isValue) {
+            computed = mix(VALUE_SEED ^ hash(getValue()));
+        } else {
+            //the sum does not depend on the iteration order of the child map
+            long sum = OBJECT_SEED;
+            boolean duplicates = hasDuplicates();
+            for (var entry : getContentMap().entrySet()) {
+                long childHash = entry.getValue().structuralHash();
+                if (duplicates) {
+                    //repeated keys are hashed in order, they are the same only if every child under the key is
+                    childHash = 0;
+                    for (TFDataObject child : getContentMap().getAll(entry.getKey())) {
+                        childHash = childHash * 31 + child.structuralHash();
+                    }
+                }
+                sum += mix(hash(entry.getKey()) * 0x9E3779B97F4A7C15L + childHash);
+            }
+            computed = mix(sum);
+        }
+        if (view) {
+            extras.document.cacheHash(extras.node, computed);
+            return computed;
+        }
+        cache = extras();
+        cache.hash = computed;
+        //published after the hash so a thread seeing the epoch also sees the hash
+        cache.hashEpoch = epoch;
+        return computed;
     }
 
-
-    //todo create immuteable map copy
-
-
     /**
-     * Converts the data object to a json string
+     * Checks if another object has the same keys and values as this one by comparing their structural hashes,
+     * see {@link #structuralHash()}. Different content has the same hash with a chance of about 1 in 2^64
      *
-     * @return the json string
+     * @param other the object to compare with
+     * @return true if both objects have the same content
      */
-    public String toJson() {
-        StringBuilder builder = new StringBuilder();
-        toJson(builder);
-        return builder.toString();
+    public boolean contentEquals(TFDataObject other) {
+        return other == this || (other != null && other.structuralHash() == structuralHash());
     }
 
     /**
-     * Helper method to convert the data object to a json string
-     *
-     * @param builder the StringBuilder to append to
+     * Checks if the children under a repeated key have the same content in the same order
      */
-    private void toJson(StringBuilder builder) {
-        builder.append("{\n");
-        int size = contentMap.size();
-        int count = 0;
-        for (Map.Entry<String, TFDataObject> entry : contentMap.entrySet()) {
-            count++;
-            builder.append("\"").append(escapeJson(entry.getKey())).append("\" : ");
-            TFDataObject dataObject = entry.getValue();
-            if (!dataObject.isValue) {
-                dataObject.toJson(builder);
-            } else {
-                builder.append("\"").append(escapeJson(dataObject.value)).append("\"");
-            }
-            if (count < size) {
-                builder.append(",\n");
-            } else {
-                builder.append("\n");
-            }
+    static boolean contentEquals(List<TFDataObject> children, List<TFDataObject> others) {
+        if (children.size() != others.size()) {
+            return false;
         }
-        builder.append("}");
+        for (int i = 0; i < children.size(); i++) {
+            if (!children.get(i).contentEquals(others.get(i))) return false;
+        }
+        return true;
     }
 
     /**
-     * Converts the data object to a YAML string
+     * Compares this object with a newer version of it, subtrees with equal hashes are skipped without being walked
      *
-     * @param indentAmount how many spaces an indent should be
-     * @return the YAML string
+     * @param other the newer version
+     * @return the added, removed and changed paths relative to both objects
      */
-    public String toYaml(int indentAmount) {
-        StringBuilder builder = new StringBuilder();
-        toYaml(builder, 0, " ".repeat(indentAmount));
-        return builder.toString();
+    public TFTreeDiff diff(TFDataObject other) {
+        return TFTreeDiff.of(this, other);
     }
 
-    private void toYaml(StringBuilder builder, int indentLevel, String indentAmount) {
-        String indent = indentAmount.repeat(indentLevel);
-        Map<String, List<TFDataObject>> mergedContentMap = mergeDuplicates(contentMap);
-
-        for (Map.Entry<String, List<TFDataObject>> entry : mergedContentMap.entrySet()) {
-            String key = entry.getKey();
-            List<TFDataObject> dataObjects = entry.getValue();
+    private static final long VALUE_SEED = 0x6A09E667F3BCC909L;
+    private static final long OBJECT_SEED = 0xBB67AE8584CAA73BL;
 
-            // Quote the key if it contains special characters
-            builder.append(indent).append(quoteYaml(key)).append(":");
-
-            if (dataObjects.size() > 1) {
-                // Handle merging multiple data objects with the same key
-                builder.append("\n");
-                for (TFDataObject dataObject : dataObjects) {
-                    if (!dataObject.isValue) {
-                        dataObject.toYaml(builder, indentLevel + 1, indentAmount);
-                    } else {
-                        builder.append(indentAmount.repeat(indentLevel + 1))
-                                .append("- \"").append(escapeYaml(dataObject.value)).append("\"\n");
-                    }
-                }
-            } else {
-                // Single data object case
-                TFDataObject dataObject = dataObjects.get(0);
-                if (!dataObject.isValue) {
-                    builder.append("\n");
-                    dataObject.toYaml(builder, indentLevel + 1, indentAmount);
-                } else {
-                    builder.append(" \"").append(escapeYaml(dataObject.value)).append("\"\n");
-                }
-            }
+    /**
+     * 64 bit FNV-1a over the chars of a string, String.hashCode() is too short to tell millions of values apart
+     */
+    private static long hash(String string) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * 0x100000001B3L;
         }
+        return hash;
     }
 
-    private Map<String, List<TFDataObject>> mergeDuplicates(Map<String, TFDataObject> originalMap) {
-        Map<String, List<TFDataObject>> mergedMap = new LinkedHashMap<>();
-        for (Map.Entry<String, TFDataObject> entry : originalMap.entrySet()) {
-            String key = entry.getKey();
-            TFDataObject value = entry.getValue();
-            mergedMap.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
-        }
-        return mergedMap;
+    /**
+     * Spreads the bits of a hash, the finalizer of splitmix64
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
     }
 
-    private String quoteYaml(String key) {
-        if (key == null) return "";
-        // Quote the key if it contains special characters
-        return key.contains(":") || key.contains(" ") || key.contains("\"") ? "\"" + key + "\"" : key;
+    /**
+     * Drops the cached structural hash of this object and of every object above it, called after its value or children changed
+     */
+    void contentChanged() {
+        for (TFDataObject object = this; object != null; object = object.parent) {
+            if (object.borrowed) {
+                //the change is seen by more than one tree, every cached hash is dropped
+                SHARED_WRITES.incrementAndGet();
+                return;
+            }
+            Extras cache = object.extras;
+            if (cache == null || cache.hashEpoch == 0) {
+                //the hashes above an object are dropped together with its own, and computing them computes its hash again
+                return;
+            }
+            cache.hashEpoch = 0;
+        }
     }
 
-    private String escapeYaml(String value) {
-        if (value == null) return "";
-        return value.replace("\"", "\\\"");  // Escape quotes inside values
+    /**
+     * Called by the child map of an object when this object is put into it, changes below this object are passed on to the owner
+     */
+    void attachTo(TFDataObject owner) {
+        if (isView() || frozen) {
+            //never changes again
+            return;
+        }
+        if (parent == null) {
+            parent = owner;
+        } else if (parent != owner) {
+            borrowed = true;
+        }
     }
 
-    // Example methods for initialization
-    public void setValue(String value) {
-        this.isValue = true;
-        this.value = value;
+    /**
+     * Forgets the parent of this object if it is the given object, the object is put into the map of its new parent next
+     */
+    void detachFrom(TFDataObject owner) {
+        if (owner != null && parent == owner) {
+            parent = null;
+        }
     }
 
-    public void addContent(String key, TFDataObject value) {
-        this.isValue = false;
-        this.contentMap.put(key, value);
+    /**
+     * @return true if writes through this object may reach the child directly, every other child is copied first
+     */
+    boolean owns(TFDataObject child) {
+        return child.parent == this;
     }
 
-
     /**
-     * Writes the json representation to a file
+     * Runs a query such as "items.*.attributes.*.attribute_class" against this object, see {@link TFQuery} for the syntax.
+     * The query is compiled on every call, compile it once with {@link TFQuery#compile(String)} when it is run repeatedly
      *
-     * @param file the file to save to
-     * @throws IOException
+     * @param query the query
+     * @return a lazy stream of the matching objects
      */
-    public void writeJsonToFile(String directory, String file) throws IOException {
-        Path path = Paths.get(directory, file);
-        Files.createDirectories(path.getParent());
-        Files.writeString(path, toJson());
+    public Stream<TFDataObject> query(String query) {
+        return TFQuery.compile(query).stream(this);
     }
 
     /**
-     * Writes the yaml representation to a file
+     * Gets the current objects key
      *
-     * @param file the file to save to
-     * @throws IOException
+     * @return
      */
-    public void writeYamlToFile(String directory, String file, int indentAmount) throws IOException {
-        Path path = Paths.get(directory, file);
-        Files.createDirectories(path.getParent());
-        Files.writeString(path, toYaml(indentAmount));
+    public String getKey() {
+        return key;
     }
 
-
     /**
-     * //todo test if this all works
-     * Returns all key values in the data object as a list of DataObjectEntry
+     * Gets a value from the specified path by its key
      *
-     * @param searchPath the path to search for, if null all key values are returned
-     * @return a list of DataObjectEntry
+     * @param path
+     * @param key
+     * @return
      */
-    public List<DataObjectEntry> getKeyValues(String searchPath, int depth) {
-        List<DataObjectEntry> entries = new ArrayList<>();
-        for (var entry : contentMap.entrySet()) {
-            String key = entry.getKey();
-            TFDataObject value = entry.getValue();
-            if (searchPath == null || value.getPath().startsWith(searchPath)) { // Check if value's path starts with searchPath
-                if (!value.isValue()) {
-                    if (depth == 0) continue;
-                    entries.addAll(getNestedKeyValues(value, key, searchPath, depth));
-                } else {
-                    entries.add(new DataObjectEntry(value.getPath(), key, value.getValue()));
-                }
-            }
-        }
-        return entries;
+    public String getValue(String path, String key) {
+        return getValue(TFPath.of(path), key, null);
     }
 
     /**
-     * Returns all key values in the data object as a list of DataObjectEntry
+     * Gets a value from the specified path by its key
      *
-     * @param object     the object to search in
-     * @param path       the path to the object
-     * @param searchPath the path to search for, if null all key values are returned
-     * @param depth      the depth to search for, if -1 all key values are returned
-     * @return a list of DataObjectEntry
+     * @param path the path to the object holding the value
+     * @param key  the key of the value
+     * @return the value or null if it does not exist
      */
-    private List<DataObjectEntry> getNestedKeyValues(TFDataObject object, String path, String searchPath, int depth) {
-        List<DataObjectEntry> nestedEntries = new ArrayList<>();
-        if (depth == 0) return nestedEntries;
-
-        for (var entry : object.getContentMap().entrySet()) {
-            String key = entry.getKey();
-            TFDataObject value = entry.getValue();
-            String fullPath = path.isEmpty() ? "" : path;
-            if (searchPath == null || value.getPath().startsWith(searchPath)) { // Check if value's path starts with searchPath
-                if (!value.isValue()) {
-                    fullPath = fullPath.isEmpty() ? key : fullPath + "." + key;
-                    nestedEntries.addAll(getNestedKeyValues(value, fullPath, searchPath, depth - 1));
-                } else {
-
-                    nestedEntries.add(new DataObjectEntry(fullPath, key, value.getValue()));
-                }
-            }
-        }
-
-        return nestedEntries;
+    public String getValue(TFPath path, String key) {
+        return getValue(path, key, null);
     }
 
     /**
-     * Returns all unique paths in the data object as a list of strings starting from the given path
+     * Gets the current objects value
      *
-     * @param startingPath the path to start from, if null all paths are returned
-     * @param depth        the depth to search for, if -1 all paths are returned
-     * @return a list of unique paths
+     * @param defaultValue the default value to return if no value is present
+     * @return the value
      */
-    public List<String> getAllUniquePaths(String startingPath, int depth) {
-        List<String> uniquePaths = new ArrayList<>();
-        for (var entry : contentMap.entrySet()) {
-            String key = entry.getKey();
-            TFDataObject dataObject = entry.getValue();
-            if (!dataObject.isValue) {
-                uniquePaths.addAll(getNestedPaths(dataObject, key, startingPath, depth));
-            } else if (startingPath == null || key.startsWith(startingPath)) {
-                uniquePaths.add(key);
-            }
-        }
-        return uniquePaths;
+    public String getValue(String defaultValue) {
+        String current = getValue();
+        return current == null ? defaultValue : current;
     }
 
-    private List<String> getNestedPaths(TFDataObject object, String path, String startingPath, int depth) {
-        List<String> nestedPaths = new ArrayList<>();
-        if (depth == 0) return nestedPaths;
+    /**
+     * @return the associated value of the current object or null
+     */
+    public String getValue() {
+        if (!isValue) return null;
+        if (isView()) return extras.document.value(extras.node);
+        return value;
+    }
+
+    /**
+     * Gets a value from the specified path by its key
+     *
+     * @param path         the path to the value
+     * @param key          the key of the value
+     * @param defaultValue the default value to return if no value is present
+     * @return
+     */
+    public String getValue(String path, String key, String defaultValue) {
+        return getValue(TFPath.of(path), key, defaultValue);
+    }
+
+    /**
+     * Gets a value from the specified path by its key
+     *
+     * @param path         the path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue the default value to return if no value is present
+     * @return the value or the default value
+     */
+    public String getValue(TFPath path, String key, String defaultValue) {
+        TFDataObject dataObject = getSubPath(path);
+        if (dataObject == null) {
+            return defaultValue;
+        }
+        TFDataObject child = dataObject.getChild(key);
+        if (child == null) {
+            return defaultValue;
+        }
+        return child.getValue(defaultValue);
+    }
+
+    /**
+     * Gets a value as an int, see {@link #asInt(int)}
+     *
+     * @param path         the dotted path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a number
+     * @return the int
+     */
+    public int getInt(String path, String key, int defaultValue) {
+        return getInt(TFPath.of(path), key, defaultValue);
+    }
+
+    /**
+     * Gets a value as an int, see {@link #asInt(int)}
+     *
+     * @param path         the path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a number
+     * @return the int
+     */
+    public int getInt(TFPath path, String key, int defaultValue) {
+        TFDataObject child = getTyped(path, key);
+        return child == null ? defaultValue : child.asInt(defaultValue);
+    }
+
+    /**
+     * Gets a value as a long, see {@link #asLong(long)}
+     *
+     * @param path         the dotted path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a number
+     * @return the long
+     */
+    public long getLong(String path, String key, long defaultValue) {
+        return getLong(TFPath.of(path), key, defaultValue);
+    }
+
+    /**
+     * Gets a value as a long, see {@link #asLong(long)}
+     *
+     * @param path         the path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a number
+     * @return the long
+     */
+    public long getLong(TFPath path, String key, long defaultValue) {
+        TFDataObject child = getTyped(path, key);
+        return child == null ? defaultValue : child.asLong(defaultValue);
+    }
+
+    /**
+     * Gets a value as a float, see {@link #asFloat(float)}
+     *
+     * @param path         the dotted path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a number
+     * @return the float
+     */
+    public float getFloat(String path, String key, float defaultValue) {
+        return getFloat(TFPath.of(path), key, defaultValue);
+    }
+
+    /**
+     * Gets a value as a float, see {@link #asFloat(float)}
+     *
+     * @param path         the path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a number
+     * @return the float
+     */
+    public float getFloat(TFPath path, String key, float defaultValue) {
+        TFDataObject child = getTyped(path, key);
+        return child == null ? defaultValue : child.asFloat(defaultValue);
+    }
+
+    /**
+     * Gets a value as a boolean, see {@link #asBoolean(boolean)}
+     *
+     * @param path         the dotted path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a number
+     * @return the boolean
+     */
+    public boolean getBoolean(String path, String key, boolean defaultValue) {
+        return getBoolean(TFPath.of(path), key, defaultValue);
+    }
+
+    /**
+     * Gets a value as a boolean, see {@link #asBoolean(boolean)}
+     *
+     * @param path         the path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a number
+     * @return the boolean
+     */
+    public boolean getBoolean(TFPath path, String key, boolean defaultValue) {
+        TFDataObject child = getTyped(path, key);
+        return child == null ? defaultValue : child.asBoolean(defaultValue);
+    }
+
+    /**
+     * Gets a value as a color, see {@link #asColor(int)}
+     *
+     * @param path         the dotted path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a color
+     * @return the color as 0xAARRGGBB
+     */
+    public int getColor(String path, String key, int defaultValue) {
+        return getColor(TFPath.of(path), key, defaultValue);
+    }
+
+    /**
+     * Gets a value as a color, see {@link #asColor(int)}
+     *
+     * @param path         the path to the object holding the value
+     * @param key          the key of the value
+     * @param defaultValue returned if there is no value or it is not a color
+     * @return the color as 0xAARRGGBB
+     */
+    public int getColor(TFPath path, String key, int defaultValue) {
+        TFDataObject child = getTyped(path, key);
+        return child == null ? defaultValue : child.asColor(defaultValue);
+    }
 
-        for (var entry : object.getContentMap().entrySet()) {
-            String key = entry.getKey();
-            TFDataObject value = entry.getValue();
-            String fullPath = path.isEmpty() ? key : path + "." + key;
-            if (startingPath == null || fullPath.startsWith(startingPath)) {
-                nestedPaths.add(fullPath);
-                if (!isValue) {
-                    nestedPaths.addAll(getNestedPaths(value, fullPath, startingPath, depth - 1));
+    /**
+     * Gets a value as a vector, see {@link #asVector()}
+     *
+     * @param path the dotted path to the object holding the value
+     * @param key  the key of the value
+     * @return a new array with the components or null if there is no value or it is not a vector
+     */
+    public float[] getVector(String path, String key) {
+        return getVector(TFPath.of(path), key);
+    }
+
+    /**
+     * Gets a value as a vector, see {@link #asVector()}
+     *
+     * @param path the path to the object holding the value
+     * @param key  the key of the value
+     * @return a new array with the components or null if there is no value or it is not a vector
+     */
+    public float[] getVector(TFPath path, String key) {
+        TFDataObject child = getTyped(path, key);
+        return child == null ? null : child.asVector();
+    }
+
+    private TFDataObject getTyped(TFPath path, String key) {
+        TFDataObject parent = getSubPath(path);
+        return parent == null ? null : parent.getChild(key);
+    }
+
+    /**
+     * Gets this value as an int. The value is parsed on the first call and kept in this object, later calls of any number getter do not parse again.
+     * Decimal values are truncated, "true" and "false" are 1 and 0
+     *
+     * @param defaultValue returned if this is not a value, not a number or outside the int range
+     * @return the int
+     */
+    public int asInt(int defaultValue) {
+        Extras cache = parsedNumber();
+        if (cache == null) return defaultValue;
+        if (cache.parsedKind == TFValueParser.LONG) {
+            return (int) cache.parsed == cache.parsed ? (int) cache.parsed : defaultValue;
+        }
+        double number = Double.longBitsToDouble(cache.parsed);
+        return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE ? (int) number : defaultValue;
+    }
+
+    /**
+     * Gets this value as a long, parsed once like {@link #asInt(int)}
+     *
+     * @param defaultValue returned if this is not a value or not a number
+     * @return the long, decimal values are truncated
+     */
+    public long asLong(long defaultValue) {
+        Extras cache = parsedNumber();
+        if (cache == null) return defaultValue;
+        return cache.parsedKind == TFValueParser.LONG ? cache.parsed : (long) Double.longBitsToDouble(cache.parsed);
+    }
+
+    /**
+     * Gets this value as a float, parsed once like {@link #asInt(int)}. A trailing f as in "1.5f" is accepted
+     *
+     * @param defaultValue returned if this is not a value or not a number
+     * @return the float
+     */
+    public float asFloat(float defaultValue) {
+        Extras cache = parsedNumber();
+        if (cache == null) return defaultValue;
+        return cache.parsedKind == TFValueParser.LONG ? cache.parsed : (float) Double.longBitsToDouble(cache.parsed);
+    }
+
+    /**
+     * Gets this value as a boolean, parsed once like {@link #asInt(int)}. Any number other than 0 and "true" are true, 0 and "false" are false
+     *
+     * @param defaultValue returned if this is not a value or not a number
+     * @return the boolean
+     */
+    public boolean asBoolean(boolean defaultValue) {
+        Extras cache = parsedNumber();
+        if (cache == null) return defaultValue;
+        return cache.parsedKind == TFValueParser.LONG ? cache.parsed != 0 : Double.longBitsToDouble(cache.parsed) != 0;
+    }
+
+    /**
+     * Gets this value as a color such as "255 128 0" or "255 128 0 200", three or four components between 0 and 255.
+     * The value is parsed on the first call and kept in this object
+     *
+     * @param defaultValue returned if this is not a value or not a color
+     * @return the color as 0xAARRGGBB, the alpha is 255 if the value has three components
+     */
+    public int asColor(int defaultValue) {
+        String current = getValue();
+        if (current == null) return defaultValue;
+        Extras cache = extras();
+        int[] color = cache.parsedColor;
+        if (color == null) {
+            long parsedValue = TFValueParser.parseColor(current);
+            color = parsedValue < 0 ? NOT_A_COLOR : new int[]{(int) parsedValue};
+            cache.parsedColor = color;
+        }
+        return color.length == 0 ? defaultValue : color[0];
+    }
+
+    /**
+     * Gets this value as a vector of whitespace separated numbers such as "0 0 1" or "[0 0 1]".
+     * The value is parsed on the first call and kept in this object, every call returns a copy
+     *
+     * @return a new array with the components or null if this is not a value or not a vector
+     */
+    public float[] asVector() {
+        String current = getValue();
+        if (current == null) return null;
+        Extras cache = extras();
+        float[] vector = cache.parsedVector;
+        if (vector == null) {
+            vector = TFValueParser.parseVector(current);
+            if (vector == null) vector = NOT_A_VECTOR;
+            cache.parsedVector = vector;
+        }
+        return vector.length == 0 ? null : vector.clone();
+    }
+
+    /**
+     * Parses this value as a number unless it already was
+     *
+     * @return the extras holding the number, parsedKind is LONG or DOUBLE, or null if this is not a value or not a number
+     */
+    private Extras parsedNumber() {
+        String current = getValue();
+        if (current == null) {
+            return null;
+        }
+        Extras cache = extras();
+        byte kind = cache.parsedKind;
+        if (kind == TFValueParser.NONE) {
+            kind = TFValueParser.numberKind(current);
+            if (kind == TFValueParser.LONG) {
+                cache.parsed = TFValueParser.parseLong(current);
+            } else if (kind == TFValueParser.DOUBLE) {
+                cache.parsed = Double.doubleToRawLongBits(TFValueParser.parseDouble(current));
+            }
+            cache.parsedKind = kind;
+        }
+        return kind == TFValueParser.INVALID_NUMBER ? null : cache;
+    }
+
+    /**
+     * Gets the extras of this object, they are created on the first call. Two threads reading a frozen tree may both create them,
+     * one of them only loses its caches since an object with a source, document or index always has its extras from the start
+     */
+    private Extras extras() {
+        Extras current = extras;
+        if (current == null) {
+            current = new Extras();
+            extras = current;
+        }
+        return current;
+    }
+
+    TFChildMap getContentMap() {
+        if (isView()) {
+            return viewChildren();
+        }
+        return getChildMap();
+    }
+
+    /**
+     * Gets the children of a compact view, they are created on the first call and kept by the view
+     */
+    private synchronized TFChildMap viewChildren() {
+        if (contentMap == null) {
+            contentMap = extras.document.childMap(extras.node);
+        }
+        return contentMap;
+    }
+
+    /**
+     * Gets the child store of an object that is not a compact view, builders add children with repeated keys through it
+     */
+    TFChildMap getChildMap() {
+        Extras current = extras;
+        if (current != null && current.source != null) {
+            materialize();
+        }
+        TFChildMap children = contentMap;
+        if (children == null) {
+            if (isValue || frozen) {
+                return TFChildMap.EMPTY;
+            }
+            children = new TFChildMap(this);
+            contentMap = children;
+        }
+        return children;
+    }
+
+    /**
+     * Gets every direct child under a key in file order, KeyValues files may repeat a key such as "xpos" with different platform conditionals.
+     * get() and every other lookup return the last of them
+     *
+     * @param key the key
+     * @return the children, empty if there is none
+     */
+    public List<TFDataObject> getAll(String key) {
+        List<TFDataObject> all = getContentMap().getAll(key);
+        if (!unsharesChildren()) {
+            return all;
+        }
+        for (int i = 0; i < all.size(); i++) {
+            TFDataObject child = all.get(i);
+            if (!owns(child)) {
+                List<TFDataObject> copies = new ArrayList<>(all);
+                for (; i < copies.size(); i++) {
+                    child = copies.get(i);
+                    copies.set(i, unshare(key, child, i, child.getPath()));
                 }
+                return List.copyOf(copies);
             }
+        }
+        return all;
+    }
 
+    /**
+     * @return true if a key of this object holds more than one child
+     */
+    boolean hasDuplicates() {
+        return getContentMap().hasDuplicates();
+    }
+
+    /**
+     * Parses the direct children of a lazily loaded object, nested objects stay deferred until they are reached
+     */
+    private synchronized void materialize() {
+        TFLazyLoader loader = extras.source;
+        if (loader == null) {
+            return;
+        }
+        if (contentMap == null) {
+            contentMap = new TFChildMap(this);
         }
-        return nestedPaths;
+        loader.load(extras.sourceStart, extras.sourceEnd, contentMap, loader.childPath(path, key));
+        extras.source = null;
     }
 
-    private String escapeJson(String input) {
-        return input.replace("\\", "\\\\").replace("\"", "\\\"");
+    void setKey(String key) {
+        this.key = key;
     }
 
-    public String getPath() {
-        return path;
+    TFValueIndex getIndex() {
+        Extras current = extras;
+        return current == null ? null : current.index;
     }
 
-    @Override
-    public String toString() {
-        return contentMap.toString();
+    void setIndex(TFValueIndex index) {
+        if (index != null || extras != null) {
+            extras().index = index;
+        }
     }
 
-    //-------records and data classes ---------
+    /**
+     * @return true if this object is a view over a compact document
+     */
+    boolean isView() {
+        Extras current = extras;
+        return current != null && current.document != null;
+    }
 
-    private record ValueCheck(String key, String value) {
-        public boolean hasKey() {
-            return key != null;
+    /**
+     * Creates a copy of this object that references the same children, they stay owned by this object and are copied again
+     * before they are written to through the copy
+     *
+     * @param path the path of the copy
+     * @return the copy
+     */
+    TFDataObject copyForWrite(String path) {
+        if (isValue) {
+            return new TFDataObject(path, key, getValue());
         }
+        TFDataObject copy = new TFDataObject(path, key, (String) null);
+        TFChildMap children = copy.getChildMap();
+        boolean duplicates = hasDuplicates();
+        for (var entry : getContentMap().entrySet()) {
+            for (TFDataObject child : duplicates ? getContentMap().getAll(entry.getKey()) : List.of(entry.getValue())) {
+                children.add(entry.getKey(), child);
+            }
+        }
+        return copy;
+    }
 
-        public boolean hasValue() {
-            return value != null;
+    /**
+     * Creates a deeply immutable snapshot of this object. A frozen tree is never written to again so any number of threads can read it without
+     * synchronization once it has been published, for example through a volatile field or an AtomicReference. Lazy objects are fully read
+     * and compact views are copied. Subtrees that are already frozen are reused instead of copied
+     *
+     * @return this object if it is already frozen, otherwise a frozen copy
+     */
+    public TFDataObject freeze() {
+        if (frozen) {
+            return this;
+        }
+        if (isValue) {
+            return frozenValue(getPath(), key, getValue());
         }
+        TFChildMap current = getContentMap();
+        TFChildMap children = new TFChildMap(current.size());
+        boolean duplicates = hasDuplicates();
+        for (var entry : current.entrySet()) {
+            for (TFDataObject child : duplicates ? current.getAll(entry.getKey()) : List.of(entry.getValue())) {
+                children.add(entry.getKey(), child.freeze());
+            }
+        }
+        return frozenObject(getPath(), key, children);
     }
 
-    public class DataObjectEntry {
+    /**
+     * @return true if this object was created by {@link #freeze()} and can not be modified
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
 
-        private final String path;
-        private final String key;
-        private final String value;
+    /**
+     * Creates a mutable copy of this object for batching several changes before freezing them again. Only the copy itself is new,
+     * its children are shared with this object and copied by {@link #add(String, String, String)} or {@link #get(String)} before they can change,
+     * calling {@link #freeze()} on the result reuses every subtree that was not touched
+     *
+     * @return a mutable copy sharing all children with this object
+     */
+    public TFDataObject thaw() {
+        return copyForWrite(getPath());
+    }
 
-        public DataObjectEntry(String path, String key, String value) {
-            this.key = key;
-            this.value = value;
-            this.path = path;
+    /**
+     * Creates a new frozen snapshot with a value set, only the objects along the path are copied and every other subtree is shared with this snapshot.
+     * Missing objects along the path are created, a value in the way of the path is replaced by an object
+     *
+     * @param path  the dotted path to the object holding the value, empty for this object
+     * @param key   the key of the value
+     * @param value the value
+     * @return the updated snapshot
+     * @throws IllegalStateException if this object is not frozen
+     */
+    public TFDataObject with(String path, String key, String value) {
+        return with(TFPath.of(path), key, value);
+    }
+
+    /**
+     * Creates a new frozen snapshot with a value set, see {@link #with(String, String, String)}
+     *
+     * @param path  the path to the object holding the value
+     * @param key   the key of the value
+     * @param value the value
+     * @return the updated snapshot
+     * @throws IllegalStateException if this object is not frozen
+     */
+    public TFDataObject with(TFPath path, String key, String value) {
+        checkFrozen();
+        return withChild(this, path, 0, key, frozenValue(fullPath(path), key, value));
+    }
+
+    /**
+     * Creates a new frozen snapshot with an entry removed, only the objects along the path are copied and every other subtree is shared with this snapshot
+     *
+     * @param path the dotted path to the object holding the entry, empty for this object
+     * @param key  the key of the entry to remove
+     * @return the updated snapshot or this snapshot if the entry does not exist
+     * @throws IllegalStateException if this object is not frozen
+     */
+    public TFDataObject without(String path, String key) {
+        return without(TFPath.of(path), key);
+    }
+
+    /**
+     * Creates a new frozen snapshot with an entry removed, see {@link #without(String, String)}
+     *
+     * @param path the path to the object holding the entry
+     * @param key  the key of the entry to remove
+     * @return the updated snapshot or this snapshot if the entry does not exist
+     * @throws IllegalStateException if this object is not frozen
+     */
+    public TFDataObject without(TFPath path, String key) {
+        checkFrozen();
+        TFDataObject parent = getSubPath(path);
+        if (parent == null || !parent.getContentMap().containsKey(key)) {
+            return this;
+        }
+        return withChild(this, path, 0, key, null);
+    }
+
+    /**
+     * Copies the objects from current down to the end of the path and replaces or removes (if child is null) one entry of the last one
+     */
+    private static TFDataObject withChild(TFDataObject current, TFPath path, int depth, String key, TFDataObject child) {
+        TFChildMap children = new TFChildMap();
+        if (!current.isValue) {
+            children.addAll(current.getChildMap());
+        }
+        if (depth == path.size()) {
+            if (child == null) {
+                children.remove(key);
+            } else {
+                children.put(key, child);
+            }
+        } else {
+            String segment = path.segment(depth);
+            TFDataObject next = children.get(segment);
+            if (next == null) {
+                next = frozenObject(current.fullPath(), segment, new TFChildMap());
+            }
+            children.put(segment, withChild(next, path, depth + 1, key, child));
+        }
+        return frozenObject(current.path, current.key, children);
+    }
+
+    private static TFDataObject frozenValue(String path, String key, String value) {
+        TFDataObject object = new TFDataObject(path, key, value);
+        object.frozen = true;
+        return object;
+    }
+
+    private static TFDataObject frozenObject(String path, String key, TFChildMap children) {
+        TFDataObject object = new TFDataObject(path, key, (String) null);
+        children.readOnly();
+        object.contentMap = children;
+        object.frozen = true;
+        return object;
+    }
+
+    /**
+     * @return the path children of this object get, the dotted path of this object including its own key
+     */
+    private String fullPath() {
+        if (path == null || path.isEmpty()) {
+            return key == null ? "" : key;
+        }
+        return path + "." + key;
+    }
+
+    /**
+     * @return the path children of the object at the given relative path get
+     */
+    private String fullPath(TFPath relative) {
+        StringBuilder builder = new StringBuilder(fullPath());
+        for (int i = 0; i < relative.size(); i++) {
+            if (builder.length() > 0) builder.append('.');
+            builder.append(relative.segment(i));
+        }
+        return builder.toString();
+    }
+
+    private void checkFrozen() {
+        if (!frozen) {
+            throw new IllegalStateException("Only frozen objects can be updated by path copying, call freeze() first");
+        }
+    }
+
+
+    /**
+     * Converts the data object to a json string
+     *
+     * @return the json string
+     */
+    public String toJson() {
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeJson(builder);
+        } catch (IOException e) {
+            //a StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the json representation incrementally, in the same layout as {@link #toJson()}
+     *
+     * @param out where the json is written to, should be buffered if it writes to a file or stream
+     * @throws IOException if writing fails
+     */
+    public void writeJson(Appendable out) throws IOException {
+        writeJson(out, TFJsonWriter.Style.LINES);
+    }
+
+    /**
+     * Writes the json representation incrementally
+     *
+     * @param out   where the json is written to, should be buffered if it writes to a file or stream
+     * @param style the layout to use
+     * @throws IOException if writing fails
+     */
+    public void writeJson(Appendable out, TFJsonWriter.Style style) throws IOException {
+        if (!TFMetrics.isEnabled()) {
+            new TFJsonWriter(out, style).write(this);
+            return;
+        }
+        TFEvents.Serialize event = TFMetrics.startSerialize("json");
+        TFMetrics.CountingAppendable counting = new TFMetrics.CountingAppendable(out);
+        new TFJsonWriter(counting, style).write(this);
+        TFMetrics.serialized(event, counting.count());
+    }
+
+    /**
+     * Writes the json representation incrementally, the stream is flushed but not closed
+     *
+     * @param out     the stream to write to
+     * @param charset the charset to encode the json with
+     * @param style   the layout to use
+     * @throws IOException if writing fails
+     */
+    public void writeJson(OutputStream out, Charset charset, TFJsonWriter.Style style) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset));
+        writeJson(writer, style);
+        writer.flush();
+    }
+
+    /**
+     * Converts the data object to a YAML string
+     *
+     * @param indentAmount how many spaces an indent should be
+     * @return the YAML string
+     */
+    public String toYaml(int indentAmount) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeYaml(builder, indentAmount);
+        } catch (IOException e) {
+            //a StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the YAML representation incrementally, in the same layout as {@link #toYaml(int)}
+     *
+     * @param out          where the yaml is written to, should be buffered if it writes to a file or stream
+     * @param indentAmount how many spaces an indent should be
+     * @throws IOException if writing fails
+     */
+    public void writeYaml(Appendable out, int indentAmount) throws IOException {
+        if (!TFMetrics.isEnabled()) {
+            new TFYamlWriter(out, indentAmount).write(this);
+            return;
+        }
+        TFEvents.Serialize event = TFMetrics.startSerialize("yaml");
+        TFMetrics.CountingAppendable counting = new TFMetrics.CountingAppendable(out);
+        new TFYamlWriter(counting, indentAmount).write(this);
+        TFMetrics.serialized(event, counting.count());
+    }
+
+    // Example methods for initialization
+    public void setValue(String value) {
+        checkMutable();
+        String oldValue = getValue();
+        this.isValue = true;
+        this.value = value;
+        clearParsed();
+        contentChanged();
+        TFValueIndex index = getIndex();
+        if (index != null) {
+            index.valueChanged(this, oldValue);
+        }
+    }
+
+    /**
+     * Drops the values parsed by the typed getters
+     */
+    private void clearParsed() {
+        Extras current = extras;
+        if (current != null) {
+            current.parsedKind = TFValueParser.NONE;
+            current.parsedColor = null;
+            current.parsedVector = null;
         }
+    }
+
+    public void addContent(String key, TFDataObject value) {
+        checkMutable();
+        this.isValue = false;
+        clearParsed();
+        putChild(this, key, value);
+    }
+
 
-        public String path() {
-            return path;
+    /**
+     * Writes the json representation to a file
+     *
+     * @param file the file to save to
+     * @throws IOException
+     */
+    public void writeJsonToFile(String directory, String file) throws IOException {
+        writeJsonToFile(directory, file, TFJsonWriter.Style.LINES);
+    }
+
+    /**
+     * Writes the json representation to a file, the json is streamed to the file so it is never held in memory as a whole
+     *
+     * @param style the layout to use
+     * @throws IOException
+     */
+    public void writeJsonToFile(String directory, String file, TFJsonWriter.Style style) throws IOException {
+        Path path = Paths.get(directory, file);
+        Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writeJson(writer, style);
         }
+    }
 
-        public String key() {
-            return key;
+    /**
+     * Writes the yaml representation to a file
+     *
+     * @param file the file to save to
+     * @throws IOException
+     */
+    public void writeYamlToFile(String directory, String file, int indentAmount) throws IOException {
+        Path path = Paths.get(directory, file);
+        Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writeYaml(writer, indentAmount);
         }
+    }
+
 
-        public String value() {
-            return value;
+    /**
+     * Returns all key values in the data object as a list of DataObjectEntry, see {@link #streamKeyValues(String, int)}
+     *
+     * @param searchPath the path to search for, if null all key values are returned
+     * @param depth      the depth to search for, if -1 all key values are returned
+     * @return a list of DataObjectEntry
+     */
+    public List<DataObjectEntry> getKeyValues(String searchPath, int depth) {
+        List<DataObjectEntry> entries = new ArrayList<>();
+        TFTraversal.keyValues(this, searchPath, depth).forEachRemaining(entries::add);
+        return entries;
+    }
+
+    /**
+     * Streams all key values below this object, depth first in the order of the children, every child of a repeated key included.
+     * The tree is walked as the stream is consumed, objects whose paths can not start with the search path or that lie deeper than depth
+     * are skipped without being walked.
+     * The stream can be made parallel, separate subtrees are then walked by separate threads
+     *
+     * @param searchPath the path the dotted path of a value including its own key has to start with, if null all key values are returned
+     * @param depth      how many object levels below this one are searched, if -1 all key values are returned
+     * @return a lazy stream of the values with the path of the object holding them relative to this object
+     */
+    public Stream<DataObjectEntry> streamKeyValues(String searchPath, int depth) {
+        return StreamSupport.stream(TFTraversal.keyValues(this, searchPath, depth), false);
+    }
+
+    /**
+     * Iterates all key values below this object lazily, see {@link #streamKeyValues(String, int)}
+     *
+     * @param searchPath the path the dotted path of a value including its own key has to start with, if null all key values are returned
+     * @param depth      how many object levels below this one are searched, if -1 all key values are returned
+     * @return an iterator over the values
+     */
+    public Iterator<DataObjectEntry> keyValueIterator(String searchPath, int depth) {
+        return Spliterators.iterator(TFTraversal.keyValues(this, searchPath, depth));
+    }
+
+    /**
+     * Returns all unique paths in the data object as a list of strings starting from the given path, see {@link #streamUniquePaths(String, int)}
+     *
+     * @param startingPath the path to start from, if null all paths are returned
+     * @param depth        the depth to search for, if -1 all paths are returned
+     * @return a list of unique paths
+     */
+    public List<String> getAllUniquePaths(String startingPath, int depth) {
+        List<String> uniquePaths = new ArrayList<>();
+        TFTraversal.paths(this, startingPath, depth).forEachRemaining(uniquePaths::add);
+        return uniquePaths;
+    }
+
+    /**
+     * Streams the dotted paths relative to this object of every value and object below it, depth first in the order of the children.
+     * Objects whose paths can not start with the starting path or that lie deeper than depth are skipped without being walked
+     *
+     * @param startingPath the path the returned paths have to start with, if null all paths are returned
+     * @param depth        how many object levels below this one are searched, if -1 all paths are returned
+     * @return a lazy stream of the paths
+     */
+    public Stream<String> streamUniquePaths(String startingPath, int depth) {
+        return StreamSupport.stream(TFTraversal.paths(this, startingPath, depth), false);
+    }
+
+    /**
+     * Iterates the paths below this object lazily, see {@link #streamUniquePaths(String, int)}
+     *
+     * @param startingPath the path the returned paths have to start with, if null all paths are returned
+     * @param depth        how many object levels below this one are searched, if -1 all paths are returned
+     * @return an iterator over the paths
+     */
+    public Iterator<String> uniquePathIterator(String startingPath, int depth) {
+        return Spliterators.iterator(TFTraversal.paths(this, startingPath, depth));
+    }
+
+    public String getPath() {
+        if (isView()) {
+            return extras.document.path(extras.node);
         }
+        return path;
+    }
 
+    private void checkMutable() {
+        if (isView()) {
+            throw new UnsupportedOperationException("Objects backed by a compact document are read only");
+        }
+        if (frozen) {
+            throw new UnsupportedOperationException("Frozen objects are read only, use with(), without() or thaw() instead");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getContentMap().toString();
+    }
+
+    //-------records and data classes ---------
+
+    private record ValueCheck(String key, String value) {
+        public boolean hasKey() {
+            return key != null;
+        }
+
+        public boolean hasValue() {
+            return value != null;
+        }
+    }
+
+    /**
+     * A value found below an object, it only holds the strings so it does not keep the tree it was found in reachable
+     *
+     * @param path  the path of the object holding the value relative to the object it was found below
+     * @param key   the key of the value
+     * @param value the value
+     */
+    public record DataObjectEntry(String path, String key, String value) {
     }
 
     public boolean isValue() {
         return isValue;
     }
+
+    /**
+     * State only some objects need, kept out of TFDataObject so a plain parsed object is not larger than it has to be
+     */
+    private static final class Extras {
+        //set while the content of a lazily parsed object has not been read yet
+        volatile TFLazyLoader source;
+        int sourceStart;
+        int sourceEnd;
+        //set if the object is a read only view over a node of a compact document
+        TFCompactDocument document;
+        int node;
+        //set if the object is part of a tree with a value index that has to be told about changes
+        TFValueIndex index;
+        //cached structural hash, valid while hashEpoch matches SHARED_WRITES and 0 once the content changed, frozen objects keep it forever
+        long hash;
+        volatile long hashEpoch;
+        //number parsed by the typed getters, parsedKind says how parsed holds it and is published after it
+        long parsed;
+        volatile byte parsedKind;
+        //color (int[1]) and vector parsed by the typed getters, kept apart since "255 128 0" is both
+        volatile int[] parsedColor;
+        volatile float[] parsedVector;
+    }
 }
@@ -1,7 +1,10 @@
 package com.Wonkglorg.util;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.concurrent.Future;
 
 public class TFDataVisualizer {
 
@@ -16,37 +19,26 @@ public class TFDataVisualizer {
     }
 
     public void printFormatted(String path, String format, int depth, int pathWidth, int keyWidth, int valueWidth) {
-        List<TFDataObject.DataObjectEntry> entries = dataObject.getKeyValues(path, depth);
-
-        if (pathWidth == 0)
-            pathWidth = entries.stream().mapToInt(e -> (dataObject.getKey() + "." + e.path()).length()).max().orElse(0);
-        if (keyWidth == 0) keyWidth = entries.stream().mapToInt(e -> e.key().length()).max().orElse(0);
-        if (valueWidth == 0) valueWidth = entries.stream().mapToInt(e -> e.value().length()).max().orElse(0);
-
-        pathWidth += 2;
-        keyWidth += 2;
-        valueWidth += 2;
-
         if (format == null) {
             format = "|%path | %key | %value |";
         }
+        print(path, TFTableFormat.compile(format), depth, pathWidth, keyWidth, valueWidth);
+    }
 
-        System.out.println(formatTitle(format, keyWidth, valueWidth, pathWidth));
-        System.out.println("_".repeat(pathWidth + keyWidth + valueWidth + 9));
-
-        for (TFDataObject.DataObjectEntry entry : entries) {
-            String p = formatString(dataObject.getKey() + "." + entry.path(), pathWidth);
-            String k = formatString(entry.key(), keyWidth);
-            String v = formatString(entry.value(), valueWidth);
-            String output = format.replace("%path", p).replace("%key", k).replace("%value", v);
-            System.out.println(output);
+    /**
+     * Prints the table through one buffer instead of a println per row, use {@link TFTableWriter} to write it anywhere else
+     */
+    private void print(String path, TFTableFormat format, int depth, int pathWidth, int keyWidth, int valueWidth) {
+        try {
+            new TFTableWriter(new ConsoleBuffer(System.out), format).widths(pathWidth, keyWidth, valueWidth).lineSeparator(System.lineSeparator())
+                    .write(dataObject, path, depth);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-
     }
 
     public void printFormatted(String path, int depth) {
-        String format = "| %path | %key | %value |";
-        printFormatted(path, format, depth, 0, 0, 0);
+        print(path, TFTableFormat.DEFAULT, depth, 0, 0, 0);
     }
 
     public void printFormatted() {
@@ -60,27 +52,23 @@ public class TFDataVisualizer {
 
 
      */
-    private String formatTitle(String format, int keyWidth, int valueWidth, int pathWidth) {
-        String key = formatString("Key", keyWidth);
-        String value = formatString("Value", valueWidth);
-        String pathString = formatString("Path", pathWidth);
-        return format.replace("%path", pathString).replace("%key", key).replace("%value", value);
-    }
-
-    private String formatString(String input, int width) {
-        if (input.length() < width) {
-            return String.format("%-" + width + "s", input);
-        } else {
-            return input.substring(0, width);
-        }
-    }
-
 
     public void printUniquePaths(String string, int depth) {
         List<String> uniquePaths = dataObject.getAllUniquePaths(null, depth);
-        int maxWidth = uniquePaths.stream().mapToInt(String::length).max().orElse(0);
+        int maxWidth = 0;
         for (String currentPath : uniquePaths) {
-            System.out.println(formatString(currentPath, maxWidth));
+            maxWidth = Math.max(maxWidth, currentPath.length());
+        }
+        try {
+            ConsoleBuffer out = new ConsoleBuffer(System.out);
+            for (String currentPath : uniquePaths) {
+                out.append(currentPath);
+                TFTableWriter.pad(out, maxWidth - currentPath.length());
+                out.append(System.lineSeparator());
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -92,4 +80,44 @@ public class TFDataVisualizer {
         printUniquePaths(null, -1);
     }
 
+    /**
+     * Collects text and prints it in chunks, the stream encodes it with its own charset as println always did
+     */
+    private static final class ConsoleBuffer implements Appendable, Flushable {
+
+        private static final int CAPACITY = 8192;
+
+        private final PrintStream out;
+        private final StringBuilder buffer = new StringBuilder(CAPACITY);
+
+        private ConsoleBuffer(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            buffer.append(csq, start, end);
+            if (buffer.length() >= CAPACITY) flush();
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            buffer.append(c);
+            if (buffer.length() >= CAPACITY) flush();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+            out.append(buffer);
+            out.flush();
+            buffer.setLength(0);
+        }
+    }
 }
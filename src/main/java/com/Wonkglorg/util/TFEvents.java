@@ -0,0 +1,56 @@
+package com.Wonkglorg.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight recorder events of the instrumented operations, only created while metrics are enabled.
+ * Record them with for example: java -XX:StartFlightRecording:filename=tf.jfr,settings=profile
+ */
+final class TFEvents {
+
+    private TFEvents() {
+    }
+
+    @Name("com.Wonkglorg.TFParse")
+    @Label("Parse")
+    @Category("TF2Parser")
+    @StackTrace(false)
+    static final class Parse extends Event {
+        @Label("Input Length")
+        @DataAmount
+        long length;
+        @Label("Nodes")
+        long nodes;
+        @Label("Max Depth")
+        int maxDepth;
+        //transient fields are not recorded
+        transient long startNanos;
+    }
+
+    @Name("com.Wonkglorg.TFSerialize")
+    @Label("Serialize")
+    @Category("TF2Parser")
+    @StackTrace(false)
+    static final class Serialize extends Event {
+        @Label("Format")
+        String format;
+        @Label("Chars")
+        long chars;
+        transient long startNanos;
+    }
+
+    @Name("com.Wonkglorg.TFMerge")
+    @Label("Merge")
+    @Category("TF2Parser")
+    @StackTrace(false)
+    static final class Merge extends Event {
+        @Label("Objects")
+        int objects;
+        transient long startNanos;
+    }
+}
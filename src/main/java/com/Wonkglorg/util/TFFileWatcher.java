@@ -0,0 +1,232 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+ * Keeps the trees of files up to date while the files change on disk, for example while editing the game's scripts directory.
+ * A change only parses the objects around the edited region again and splices them into the existing tree, listeners are told which paths changed.
+ * Updates happen on the watcher thread while holding the lock of the file's root object, readers on other threads synchronize on the root
+ * or take a {@link TFDataObject#freeze()} snapshot from a listener. Value indexes are not updated by the watcher, rebuild them in a listener
+ */
+public final class TFFileWatcher implements AutoCloseable {
+
+    private Charset charset = StandardCharsets.UTF_8;
+    private TFStringPool pool;
+    private final Map<Path, TFIncrementalFile> files = new ConcurrentHashMap<>();
+    private final Map<Path, Set<Path>> directories = new HashMap<>();
+    private final List<TFChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    private TFFileWatcher() {
+    }
+
+    /**
+     * @return a new watcher reading utf-8 files, it does not watch anything until {@link #watch(Path)} and {@link #start()} are called
+     */
+    public static TFFileWatcher create() {
+        return new TFFileWatcher();
+    }
+
+    /**
+     * Sets the charset used for files without a byte order mark
+     *
+     * @param charset the charset
+     * @return this watcher
+     */
+    public TFFileWatcher charset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Sets the pool keys, values and paths of every watched file are canonicalized with, a pool from {@link TFStringPool#shared()}
+     * may also be used by other parses while the watcher runs
+     *
+     * @param pool the pool or null to not pool
+     * @return this watcher
+     */
+    public TFFileWatcher stringPool(TFStringPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Adds a listener notified after every applied change
+     *
+     * @param listener the listener
+     * @return this watcher
+     */
+    public TFFileWatcher addListener(TFChangeListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Parses a file and starts tracking it
+     *
+     * @param path the file to watch
+     * @return the root of the file, the same object is updated in place whenever the file changes
+     * @throws UncheckedIOException if the file could not be read or its directory could not be watched
+     */
+    public synchronized TFDataObject watch(Path path) {
+        Path file = path.toAbsolutePath().normalize();
+        TFIncrementalFile tracked = files.get(file);
+        if (tracked != null) {
+            return tracked.root();
+        }
+        try {
+            tracked = TFIncrementalFile.load(Files.readAllBytes(file), charset, pool == null ? null : pool.forParse(false));
+            files.put(file, tracked);
+            Path directory = file.getParent();
+            Set<Path> watched = directories.computeIfAbsent(directory, d -> new HashSet<>());
+            if (watched.isEmpty() && watchService != null) {
+                register(directory);
+            }
+            watched.add(file);
+            return tracked.root();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts the daemon thread that waits for changes of the watched files
+     *
+     * @return this watcher
+     * @throws UncheckedIOException if the watch service could not be created
+     */
+    public synchronized TFFileWatcher start() {
+        if (thread != null) {
+            return this;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories.keySet()) {
+                register(directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        thread = new Thread(this::run, "TFFileWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Reads a watched file and applies its changes immediately, without waiting for the watch service.
+     * A listener that throws is told through its {@link TFChangeListener#failed(Path, Exception)}, the other listeners are still notified
+     *
+     * @param path the watched file
+     * @return the changed paths, empty if the file did not change
+     * @throws IllegalArgumentException if the file is not watched
+     * @throws UncheckedIOException     if the file could not be read
+     */
+    public List<String> refresh(Path path) {
+        Path file = path.toAbsolutePath().normalize();
+        TFIncrementalFile tracked = files.get(file);
+        if (tracked == null) {
+            throw new IllegalArgumentException("File is not watched: " + file);
+        }
+        try {
+            byte[] content = Files.readAllBytes(file);
+            TFDataObject root = tracked.root();
+            synchronized (root) {
+                List<String> changed = tracked.update(content);
+                if (!changed.isEmpty()) {
+                    for (TFChangeListener listener : listeners) {
+                        //a failing listener does not keep the others from being notified
+                        try {
+                            listener.changed(file, root, changed);
+                        } catch (RuntimeException e) {
+                            failed(listener, file, e);
+                        }
+                    }
+                }
+                return changed;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private void run() {
+        WatchService service = watchService;
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            //editors often report a save several times, every file is only read once per batch
+            Set<Path> changedFiles = new HashSet<>();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.context() instanceof Path) {
+                    Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+                    if (files.containsKey(file)) changedFiles.add(file);
+                }
+            }
+            key.reset();
+            for (Path file : changedFiles) {
+                try {
+                    refresh(file);
+                } catch (UncheckedIOException e) {
+                    //the file may be replaced by the editor right now, the next event reads it again
+                    for (TFChangeListener listener : listeners) {
+                        failed(listener, file, e.getCause());
+                    }
+                } catch (RuntimeException e) {
+                    //one file that can not be applied does not stop the watcher
+                    for (TFChangeListener listener : listeners) {
+                        failed(listener, file, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void failed(TFChangeListener listener, Path file, Exception error) {
+        try {
+            listener.failed(file, error);
+        } catch (RuntimeException ignored) {
+            //there is nobody left to report to, the watcher keeps running
+        }
+    }
+}
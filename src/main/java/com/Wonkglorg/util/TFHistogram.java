@@ -0,0 +1,102 @@
+package com.Wonkglorg.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Lock free histogram of non negative longs with one bucket per power of two, recording is a few atomic adds.
+ * Percentiles are accurate to a factor of two, which is enough to tell a 10kb parse from a 10mb one
+ */
+public final class TFHistogram {
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private volatile long max;
+
+    TFHistogram(String name) {
+        this.name = name;
+    }
+
+    void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(value == 0 ? 0 : 63 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+        //racy maximum, a lost update only happens if two larger values arrive at the same time
+        if (value > max) max = value;
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max = 0;
+    }
+
+    /**
+     * @return the name of the histogram
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return how many values were recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of every recorded value
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return the largest recorded value
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the average of every recorded value, 0 if nothing was recorded
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * Gets an upper bound of a percentile
+     *
+     * @param percentile the percentile between 0 and 1, for example 0.99
+     * @return the upper bound of the bucket holding the percentile, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= target && seen > 0) {
+                return Math.min(i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1, max);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{count=" + getCount() + ", mean=" + (long) getMean() + ", p50=" + getPercentile(0.5) + ", p99=" + getPercentile(0.99) + ", max=" + max + "}";
+    }
+}
@@ -0,0 +1,168 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Loads files together with the files they pull in through top level #base and #include directives, paths are relative to the including file.
+ * Like the game does it, a #base file only provides defaults, the including file wins on collisions, while an #include is merged in
+ * as if its content followed the including file. Every file is read and resolved once per resolver, later loads reuse the cached tree.
+ * Resolved trees share unchanged subtrees with the cache, see {@link TFDataObject#merge(TFDataObject...)}
+ */
+public final class TFIncludeResolver {
+
+    /**
+     * Directive whose file provides defaults for the including file
+     */
+    public static final String BASE = "#base";
+    /**
+     * Directive whose file is merged into the including file
+     */
+    public static final String INCLUDE = "#include";
+
+    private Charset charset = StandardCharsets.UTF_8;
+    private TFParseOptions options = TFParseOptions.defaults();
+    private final Map<Path, TFDataObject> cache = new HashMap<>();
+    //files currently being resolved, in include order, to report cycles
+    private final Set<Path> resolving = new LinkedHashSet<>();
+
+    private TFIncludeResolver() {
+    }
+
+    /**
+     * @return a new resolver reading utf-8 files with default parse options
+     */
+    public static TFIncludeResolver create() {
+        return new TFIncludeResolver();
+    }
+
+    /**
+     * Sets the charset used for files without a byte order mark
+     *
+     * @param charset the charset
+     * @return this resolver
+     */
+    public TFIncludeResolver charset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Sets how every file is parsed
+     *
+     * @param options the parse options
+     * @return this resolver
+     */
+    public TFIncludeResolver options(TFParseOptions options) {
+        this.options = options;
+        return this;
+    }
+
+    /**
+     * Loads a file and everything it includes
+     *
+     * @param path the file to load
+     * @return the resolved tree, shared with every later load of the same file through this resolver
+     * @throws UncheckedIOException  if a file could not be read
+     * @throws IllegalStateException if files include each other in a cycle
+     */
+    public synchronized TFDataObject load(Path path) {
+        Path file = path.toAbsolutePath().normalize();
+        TFDataObject cached = cache.get(file);
+        if (cached != null) {
+            return cached;
+        }
+        if (!resolving.add(file)) {
+            List<Path> chain = new ArrayList<>(resolving);
+            chain = chain.subList(chain.indexOf(file), chain.size());
+            throw new IllegalStateException("Include cycle: " + chain + " -> " + file);
+        }
+        try {
+            TFInput input = TFInput.open(file, charset);
+            List<String[]> directives = directives(input);
+            TFDataObject object = TFDataObject.from(input, options);
+            if (!directives.isEmpty()) {
+                object.getContentMap().keySet().removeIf(key -> key.equalsIgnoreCase(BASE) || key.equalsIgnoreCase(INCLUDE));
+                object = resolve(file, object, directives);
+            }
+            cache.put(file, object);
+            return object;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            resolving.remove(file);
+        }
+    }
+
+    /**
+     * Drops every cached file so the next load reads them again
+     */
+    public synchronized void clearCache() {
+        cache.clear();
+    }
+
+    private TFDataObject resolve(Path file, TFDataObject object, List<String[]> directives) {
+        List<TFDataObject> bases = new ArrayList<>();
+        List<TFDataObject> includes = new ArrayList<>();
+        for (String[] directive : directives) {
+            TFDataObject included = load(file.resolveSibling(directive[1]));
+            (directive[0].equals(BASE) ? bases : includes).add(included);
+        }
+        TFDataObject resolved = object;
+        if (!includes.isEmpty()) {
+            includes.add(0, resolved);
+            resolved = TFDataObject.merge(TFMergePolicy.LAST_WINS, includes.toArray(new TFDataObject[0]));
+        }
+        if (!bases.isEmpty()) {
+            bases.add(0, resolved);
+            resolved = TFDataObject.merge(TFMergePolicy.FIRST_WINS, bases.toArray(new TFDataObject[0]));
+        }
+        return resolved;
+    }
+
+    /**
+     * Collects the top level directives of an input without decoding anything else, objects are skipped as a whole
+     *
+     * @return the directive and file name of every directive in order
+     */
+    private static List<String[]> directives(TFInput input) {
+        List<String[]> directives = new ArrayList<>();
+        TFTokenizer tokenizer = new TFTokenizer(input);
+        String pendingKey = null;
+        while (true) {
+            switch (tokenizer.next()) {
+                case STRING:
+                    if (pendingKey == null) {
+                        //only directives are decoded, any other top level key is never looked at again
+                        boolean directive = tokenizer.tokenEnd() > tokenizer.tokenStart() && input.charAt(tokenizer.tokenStart()) == '#';
+                        pendingKey = directive ? tokenizer.text() : "";
+                    } else {
+                        if (pendingKey.equalsIgnoreCase(BASE) || pendingKey.equalsIgnoreCase(INCLUDE)) {
+                            directives.add(new String[]{pendingKey.toLowerCase(), tokenizer.text()});
+                        }
+                        pendingKey = null;
+                    }
+                    break;
+                case OPEN:
+                    tokenizer.skipObject();
+                    pendingKey = null;
+                    break;
+                case CLOSE:
+                case CONDITIONAL:
+                    pendingKey = null;
+                    break;
+                case EOF:
+                    return directives;
+            }
+        }
+    }
+}
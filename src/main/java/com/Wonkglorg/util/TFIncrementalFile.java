@@ -0,0 +1,538 @@
+package com.Wonkglorg.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Tree of a file that can be updated from a new version of the file without parsing all of it again.
+ * Every object with a large enough body remembers where its child objects start and end in the file, its body is split into segments,
+ * each ending with the closing brace of one child object, plus a tail after the last one. A new version is compared against the old bytes
+ * to find the changed range, only the segments of the smallest object containing that range are parsed again and spliced into the tree.
+ * Whenever an update can not be applied safely, for example because braces became unbalanced or keys of a level repeat, the whole file is parsed again
+ */
+final class TFIncrementalFile {
+
+    //objects with a body at least this long track their child objects, smaller ones are always parsed again as a whole
+    static final int TRACK_THRESHOLD = 4 * 1024;
+    private static final int SUFFIX_CHUNK = 4096;
+
+    private final Charset charset;
+    private final TFStringPool pool;
+    private final TFDataObject root = new TFDataObject("", null, (String) null);
+    private byte[] content;
+    private TFInput input;
+    private Block top;
+    //false while the file has an object without closing brace, block offsets are unreliable then and every update parses the whole file
+    private boolean balanced;
+
+    private TFIncrementalFile(Charset charset, TFStringPool pool) {
+        this.charset = charset;
+        this.pool = pool;
+    }
+
+    /**
+     * Parses the first version of a file
+     *
+     * @param content the bytes of the file
+     * @param charset the charset to use if the file has no byte order mark
+     * @param pool    the pool to canonicalize keys, values and paths with, or null
+     * @return the tracked file
+     */
+    static TFIncrementalFile load(byte[] content, Charset charset, TFStringPool pool) {
+        TFIncrementalFile file = new TFIncrementalFile(charset, pool);
+        file.content = content;
+        file.input = TFInput.of(ByteBuffer.wrap(content), charset);
+        file.top = file.buildTop(file.input, file.root);
+        return file;
+    }
+
+    /**
+     * @return the root of the tree, it stays the same object across updates
+     */
+    TFDataObject root() {
+        return root;
+    }
+
+    /**
+     * Applies a new version of the file to the tree
+     *
+     * @param newContent the new bytes of the file
+     * @return the dotted paths of every value or object that was added, removed or changed, empty if nothing changed
+     */
+    List<String> update(byte[] newContent) {
+        int prefix = Arrays.mismatch(content, newContent);
+        if (prefix < 0) {
+            return List.of();
+        }
+        TFInput newInput = TFInput.of(ByteBuffer.wrap(newContent), charset);
+        int unit = unitSize(newInput);
+        int bom = bomLength(content);
+        List<String> changed = null;
+        if (unit > 0 && unitSize(input) == unit && bom == bomLength(newContent) && prefix >= bom) {
+            int suffix = commonSuffix(content, newContent, prefix);
+            int start = (prefix - bom) / unit;
+            int suffixUnits = suffix / unit;
+            int oldEnd = input.length() - suffixUnits;
+            int delta = newInput.length() - input.length();
+            changed = splice(newInput, start, Math.max(start, oldEnd), delta);
+        }
+        if (changed == null) {
+            changed = reparse(newInput);
+        }
+        content = newContent;
+        input = newInput;
+        return changed;
+    }
+
+    //-------incremental update ---------
+
+    /**
+     * Parses the changed region again and splices it into the tree
+     *
+     * @param start  the first changed index in the old input
+     * @param end    the index after the last changed index in the old input
+     * @param delta  how much longer the new input is
+     * @return the changed paths or null if the whole file has to be parsed again
+     */
+    private List<String> splice(TFInput newInput, int start, int end, int delta) {
+        if (!balanced) {
+            return null;
+        }
+        Block block = top;
+        while (block.children != null) {
+            Block child = block.childContaining(start, end);
+            if (child == null) break;
+            block = child;
+        }
+        if (block == top || block.duplicates && block.children != null) {
+            return null;
+        }
+        List<String> changed = new ArrayList<>();
+        if (block.children == null) {
+            top.shift(end, delta);
+            return replaceBlock(newInput, block, changed) ? changed : null;
+        }
+        //the segments are picked by their old offsets, everything after the changed range is shifted afterwards
+        int size = block.children.size();
+        int first = 0;
+        while (first < size && block.children.get(first).end < start) {
+            first++;
+        }
+        int last = first;
+        while (last < size && block.children.get(last).end < end) {
+            last++;
+        }
+        top.shift(end, delta);
+        return replaceSegments(newInput, block, first, last, changed) ? changed : null;
+    }
+
+    /**
+     * Parses a whole object body again and replaces the object in its parent
+     */
+    private boolean replaceBlock(TFInput newInput, Block block, List<String> changed) {
+        Block parent = block.parent;
+        if (parent.parent == null || parent.duplicates) {
+            return false;
+        }
+        //the closing brace has to still belong to this object, an edit could have opened a string or comment that swallows it
+        TFTokenizer tokenizer = new TFTokenizer(newInput, block.start, newInput.length());
+        if (tokenizer.skipObject() != block.end) {
+            return false;
+        }
+        Block rebuilt = newBlock(newInput, parent, block.key, block.start, block.end, new TFDataObject(parent.childPath, block.key, (String) null));
+        if (rebuilt == null) {
+            return false;
+        }
+        parent.children.set(parent.children.indexOf(block), rebuilt);
+        parent.object.getChildMap().put(block.key, rebuilt.object);
+        diff(block.object, rebuilt.object, rebuilt.relativePath, changed);
+        return true;
+    }
+
+    /**
+     * Parses the segments of an object body overlapping the changed range again and replaces their entries
+     *
+     * @param first the first segment to parse again
+     * @param last  the last segment to parse again, its closing brace or the end of the body lies behind the changed range
+     */
+    private boolean replaceSegments(TFInput newInput, Block block, int first, int last, List<String> changed) {
+        int size = block.children.size();
+        boolean tail = last == size;
+        int from = block.segmentStart(first);
+        int to = block.segmentEnd(last);
+
+        Level level = scanLevel(newInput, from, to, block, true);
+        if (!level.valid || level.duplicates) {
+            return false;
+        }
+        if (!tail && (level.blocks.isEmpty() || level.lastClose != to - 1 || !level.segments.get(level.segments.size() - 1).isEmpty())) {
+            return false;
+        }
+        //the scan stops at the end of the body, an edit in the tail could have opened a string that swallows the closing brace of the object
+        if (tail && new TFTokenizer(newInput, from, newInput.length()).skipObject() != block.end) {
+            return false;
+        }
+        TFChildMap children = block.object.getChildMap();
+        Map<String, TFDataObject> removed = new LinkedHashMap<>();
+        for (int i = first; i <= last; i++) {
+            for (String key : block.segments.get(i)) {
+                removed.put(key, children.get(key));
+            }
+        }
+        for (String key : level.entries.keySet()) {
+            //a new key that already exists in an untouched segment would change which duplicate wins
+            if (children.containsKey(key) && !removed.containsKey(key)) {
+                return false;
+            }
+        }
+        boolean added = false;
+        for (String key : removed.keySet()) {
+            if (!level.entries.containsKey(key)) children.remove(key);
+        }
+        for (var entry : level.entries.entrySet()) {
+            //replaced keys keep their place
+            added |= children.put(entry.getKey(), entry.getValue()) == null;
+        }
+
+        List<List<String>> segments = tail ? level.segments : level.segments.subList(0, level.blocks.size());
+        block.children.subList(first, Math.min(last + 1, size)).clear();
+        block.children.addAll(first, level.blocks);
+        block.segments.subList(first, last + 1).clear();
+        block.segments.addAll(first, segments);
+        if (added) {
+            //new keys were appended behind the others, put every child back in file order
+            TFChildMap ordered = new TFChildMap(children.size());
+            for (List<String> segment : block.segments) {
+                for (String key : segment) {
+                    ordered.put(key, children.get(key));
+                }
+            }
+            children.clear();
+            children.addAll(ordered);
+        }
+
+        Set<String> keys = new HashSet<>(removed.keySet());
+        keys.addAll(level.entries.keySet());
+        for (String key : keys) {
+            diff(removed.get(key), level.entries.get(key), join(block.relativePath, key), changed);
+        }
+        return true;
+    }
+
+    /**
+     * Parses the whole new input and moves its content into the existing root
+     */
+    private List<String> reparse(TFInput newInput) {
+        TFDataObject fresh = new TFDataObject("", null, (String) null);
+        Block rebuilt = buildTop(newInput, fresh);
+        List<String> changed = new ArrayList<>();
+        diff(root, fresh, "", changed);
+        root.getChildMap().clear();
+        root.getChildMap().moveAll(fresh.getChildMap());
+        root.setKey(fresh.getKey());
+        for (Block block : rebuilt.children) {
+            block.object = root;
+        }
+        top = rebuilt;
+        return changed;
+    }
+
+    //-------building ---------
+
+    private Block buildTop(TFInput input, TFDataObject target) {
+        balanced = true;
+        Block block = new Block(null, null, 0, input.length(), target, "", "");
+        Level level = scanLevel(input, 0, input.length(), block, false);
+        block.children = level.blocks;
+        block.segments = level.segments;
+        //several top level objects or top level values all end up in the root, their keys can collide
+        boolean shared = level.blocks.size() > 1 || level.topLevelValues;
+        for (Block child : level.blocks) {
+            child.duplicates |= shared;
+        }
+        return block;
+    }
+
+    /**
+     * Creates the block of an object body, larger bodies track their child objects, smaller ones are built in one go
+     *
+     * @return the new block or null if the body is not balanced
+     */
+    private Block newBlock(TFInput input, Block parent, String key, int start, int end, TFDataObject object) {
+        boolean unwrapped = parent.parent == null;
+        String childPath = unwrapped || parent.childPath.isEmpty() ? key : TFTreeBuilder.childPath(parent.childPath, key, pool);
+        String relativePath = unwrapped ? "" : join(parent.relativePath, key);
+        Block block = new Block(parent, key, start, end, object, childPath, relativePath);
+        if (end - start < TRACK_THRESHOLD) {
+            TFTreeBuilder.buildChildren(input, start, end, object, childPath, pool);
+            return block;
+        }
+        Level level = scanLevel(input, start, end, block, false);
+        if (!level.valid) {
+            return null;
+        }
+        object.getChildMap().addAll(level.entries);
+        block.children = level.blocks;
+        block.segments = level.segments;
+        block.duplicates = level.duplicates;
+        return block;
+    }
+
+    /**
+     * Parses a single level of a region, child objects become blocks. At the top level objects are unwrapped into the root
+     *
+     * @param strict true if the region is only part of an object body, any brace without partner makes the level invalid.
+     *               Otherwise a missing closing brace ends the object at the end of the region like the tree builder does
+     */
+    private Level scanLevel(TFInput input, int from, int to, Block parent, boolean strict) {
+        Level level = new Level();
+        boolean topLevel = parent.parent == null;
+        TFTokenizer tokenizer = new TFTokenizer(input, from, to);
+        String pendingKey = null;
+        while (true) {
+            switch (tokenizer.next()) {
+                case STRING:
+                    if (pendingKey == null) {
+                        pendingKey = tokenizer.text(pool);
+                    } else {
+                        TFDataObject value = new TFDataObject(parent.childPath, pendingKey, TFReader.value(tokenizer, pool));
+                        if (topLevel) {
+                            //top level values go straight into the root so they keep their place between the top level objects
+                            parent.object.getChildMap().add(pendingKey, value);
+                            level.topLevelValues = true;
+                        } else {
+                            level.put(pendingKey, value);
+                        }
+                        pendingKey = null;
+                    }
+                    break;
+                case OPEN:
+                    String key = pendingKey == null ? "" : pendingKey;
+                    pendingKey = null;
+                    int start = tokenizer.position();
+                    int end = tokenizer.skipObject();
+                    if (end >= to) {
+                        if (strict) {
+                            level.valid = false;
+                            return level;
+                        }
+                        balanced = false;
+                    }
+                    Block child;
+                    if (topLevel) {
+                        if (parent.object.getKey() == null) {
+                            parent.object.setKey(key);
+                        }
+                        child = newBlock(input, parent, key, start, end, parent.object);
+                    } else {
+                        child = newBlock(input, parent, key, start, end, new TFDataObject(parent.childPath, key, (String) null));
+                    }
+                    if (child == null) {
+                        level.valid = false;
+                        return level;
+                    }
+                    if (!topLevel) {
+                        level.put(key, child.object);
+                    }
+                    level.blocks.add(child);
+                    level.lastClose = end;
+                    level.segments.add(new ArrayList<>());
+                    break;
+                case CLOSE:
+                    if (strict) {
+                        level.valid = false;
+                        return level;
+                    }
+                    pendingKey = null;
+                    break;
+                case CONDITIONAL:
+                    break;
+                case EOF:
+                    return level;
+            }
+        }
+    }
+
+    //-------helpers ---------
+
+    /**
+     * Collects the paths that differ between two versions of an entry, values and objects that only exist on one side are reported as a whole
+     */
+    static void diff(TFDataObject before, TFDataObject after, String path, List<String> changed) {
+        if (before == after) {
+            return;
+        }
+        if (before == null || after == null || before.isValue() != after.isValue()) {
+            changed.add(path);
+            return;
+        }
+        if (before.isValue()) {
+            if (!before.getValue().equals(after.getValue())) {
+                changed.add(path);
+            }
+            return;
+        }
+        TFChildMap beforeChildren = before.getContentMap();
+        TFChildMap afterChildren = after.getContentMap();
+        boolean duplicates = before.hasDuplicates() || after.hasDuplicates();
+        for (var entry : beforeChildren.entrySet()) {
+            String key = entry.getKey();
+            if (duplicates && (beforeChildren.getAll(key).size() > 1 || afterChildren.getAll(key).size() > 1)) {
+                //repeated keys are reported as a whole
+                if (!TFDataObject.contentEquals(beforeChildren.getAll(key), afterChildren.getAll(key))) changed.add(join(path, key));
+                continue;
+            }
+            diff(entry.getValue(), afterChildren.get(key), join(path, key), changed);
+        }
+        for (var entry : afterChildren.entrySet()) {
+            if (!beforeChildren.containsKey(entry.getKey())) {
+                changed.add(join(path, entry.getKey()));
+            }
+        }
+    }
+
+    private static String join(String path, String key) {
+        return path.isEmpty() ? key : path + "." + key;
+    }
+
+    /**
+     * @return how many bytes a code unit of the input takes, 0 if the input was decoded up front and can not be compared byte wise
+     */
+    private static int unitSize(TFInput input) {
+        if (input instanceof TFInput.ByteInput) return 1;
+        if (input instanceof TFInput.Utf16Input) return 2;
+        return 0;
+    }
+
+    private static int bomLength(byte[] content) {
+        if (content.length >= 3 && (content[0] & 0xFF) == 0xEF && (content[1] & 0xFF) == 0xBB && (content[2] & 0xFF) == 0xBF) return 3;
+        if (content.length >= 2 && ((content[0] & 0xFF) == 0xFF && (content[1] & 0xFF) == 0xFE || (content[0] & 0xFF) == 0xFE && (content[1] & 0xFF) == 0xFF)) return 2;
+        return 0;
+    }
+
+    /**
+     * Counts the equal bytes at the end of both arrays, compared in chunks so the bulk of the work is a vectorized mismatch
+     */
+    private static int commonSuffix(byte[] a, byte[] b, int prefix) {
+        int max = Math.min(a.length, b.length) - prefix;
+        int suffix = 0;
+        while (suffix < max) {
+            int chunk = Math.min(SUFFIX_CHUNK, max - suffix);
+            int aEnd = a.length - suffix;
+            int bEnd = b.length - suffix;
+            if (Arrays.mismatch(a, aEnd - chunk, aEnd, b, bEnd - chunk, bEnd) < 0) {
+                suffix += chunk;
+                continue;
+            }
+            int i = 1;
+            while (a[aEnd - i] == b[bEnd - i]) {
+                i++;
+            }
+            return suffix + i - 1;
+        }
+        return suffix;
+    }
+
+    /**
+     * Body of an object in the current input
+     */
+    private static final class Block {
+        private final Block parent;
+        private final String key;
+        //index after the opening brace
+        private int start;
+        //index of the closing brace
+        private int end;
+        //the object the entries of the body are stored in, the root for top level objects
+        private TFDataObject object;
+        private final String childPath;
+        private final String relativePath;
+        //tracked child objects in source order, null if the body is always parsed as a whole
+        private List<Block> children;
+        //keys of the entries in each segment, one more than there are children
+        private List<List<String>> segments;
+        private boolean duplicates;
+
+        private Block(Block parent, String key, int start, int end, TFDataObject object, String childPath, String relativePath) {
+            this.parent = parent;
+            this.key = key;
+            this.start = start;
+            this.end = end;
+            this.object = object;
+            this.childPath = childPath;
+            this.relativePath = relativePath;
+        }
+
+        private int segmentStart(int segment) {
+            return segment == 0 ? start : children.get(segment - 1).end + 1;
+        }
+
+        private int segmentEnd(int segment) {
+            return segment == children.size() ? end : children.get(segment).end + 1;
+        }
+
+        /**
+         * Finds the child whose body contains the range, its braces must not be part of the range
+         */
+        private Block childContaining(int from, int to) {
+            int low = 0;
+            int high = children.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                Block child = children.get(middle);
+                if (child.end < from) {
+                    low = middle + 1;
+                } else if (child.start > from) {
+                    high = middle - 1;
+                } else {
+                    return to <= child.end ? child : null;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Moves every offset at or after the old index by delta
+         */
+        private void shift(int after, int delta) {
+            if (delta == 0) {
+                return;
+            }
+            //start is anchored to the opening brace before it, end is the closing brace itself
+            if (start > after) start += delta;
+            if (end >= after) end += delta;
+            if (children == null) {
+                return;
+            }
+            for (Block child : children) {
+                if (child.end >= after) child.shift(after, delta);
+            }
+        }
+    }
+
+    /**
+     * Entries, child blocks and segments found while scanning one level
+     */
+    private static final class Level {
+        private final TFChildMap entries = new TFChildMap();
+        private final List<Block> blocks = new ArrayList<>();
+        private final List<List<String>> segments = new ArrayList<>(List.of(new ArrayList<>()));
+        private int lastClose = -1;
+        private boolean valid = true;
+        private boolean duplicates;
+        private boolean topLevelValues;
+
+        private void put(String key, TFDataObject object) {
+            duplicates |= entries.containsKey(key);
+            entries.add(key, object);
+            segments.get(segments.size() - 1).add(key);
+        }
+    }
+}
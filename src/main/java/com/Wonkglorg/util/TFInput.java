@@ -0,0 +1,240 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Source of characters for the TFTokenizer.
+ * The tokenizer only ever looks at single code units to find structure (quotes, braces, whitespace are all ascii)
+ * so byte backed inputs can be scanned without decoding, keys and values are only turned into Strings once decode is called
+ */
+public interface TFInput {
+
+    /**
+     * Files smaller than this are read onto the heap, mapping them costs more than it saves
+     */
+    int MAP_THRESHOLD = 64 * 1024;
+
+    /**
+     * @return the amount of code units in this input
+     */
+    int length();
+
+    /**
+     * Gets the code unit at the given index, for single byte and utf-8 inputs this is the raw byte, which is enough to detect all structural characters
+     *
+     * @param index the index to read
+     * @return the code unit
+     */
+    char charAt(int index);
+
+    /**
+     * Decodes a region of the input into a String
+     *
+     * @param start the start of the region
+     * @param end   the end of the region
+     * @return the decoded String
+     */
+    String decode(int start, int end);
+
+    /**
+     * @return true if every code unit returned by {@link #charAt(int)} is the actual character, false if multi byte characters are returned as raw bytes
+     */
+    default boolean hasCharUnits() {
+        return true;
+    }
+
+    /**
+     * Creates an input over already decoded text
+     *
+     * @param content the text
+     * @return a new input
+     */
+    static TFInput of(CharSequence content) {
+        return new CharSequenceInput(content);
+    }
+
+    /**
+     * Creates an input over encoded bytes, a byte order mark at the start of the buffer takes precedence over the given charset
+     *
+     * @param buffer  the bytes to read, the buffer's position and limit mark the content
+     * @param charset the charset to use if no byte order mark is present
+     * @return a new input
+     */
+    static TFInput of(ByteBuffer buffer, Charset charset) {
+        ByteBuffer content = buffer.slice();
+        Charset detected = charset;
+        int bomLength = 0;
+        if (startsWith(content, 0xEF, 0xBB, 0xBF)) {
+            detected = StandardCharsets.UTF_8;
+            bomLength = 3;
+        } else if (startsWith(content, 0xFF, 0xFE)) {
+            detected = StandardCharsets.UTF_16LE;
+            bomLength = 2;
+        } else if (startsWith(content, 0xFE, 0xFF)) {
+            detected = StandardCharsets.UTF_16BE;
+            bomLength = 2;
+        }
+        content.position(bomLength);
+        content = content.slice();
+
+        if (detected.equals(StandardCharsets.UTF_16LE)) {
+            return new Utf16Input(content, ByteOrder.LITTLE_ENDIAN);
+        }
+        if (detected.equals(StandardCharsets.UTF_16BE) || detected.equals(StandardCharsets.UTF_16)) {
+            return new Utf16Input(content, ByteOrder.BIG_ENDIAN);
+        }
+        if (isAsciiCompatible(detected)) {
+            return new ByteInput(content, detected);
+        }
+        //anything else can not be scanned byte wise so it is decoded up front
+        return new CharSequenceInput(detected.decode(content));
+    }
+
+    /**
+     * Opens a file as input, larger files are memory mapped instead of being read onto the heap.
+     * A byte order mark in the file takes precedence over the given charset so utf-8 and utf-16 files can be read with the same call
+     *
+     * @param path    the file to read
+     * @param charset the charset to use if the file has no byte order mark
+     * @return a new input
+     * @throws IOException if the file could not be read
+     */
+    static TFInput open(Path path, Charset charset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File " + path + " is too large to be read (" + size + " bytes)");
+            }
+            ByteBuffer buffer;
+            if (size < MAP_THRESHOLD) {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    //keep reading until the buffer is full
+                }
+                buffer.flip();
+            } else {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return of(buffer, charset);
+        }
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int... bytes) {
+        if (buffer.remaining() < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if ((buffer.get(buffer.position() + i) & 0xFF) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII) || charset.name().startsWith("windows-125");
+    }
+
+    //-------implementations ---------
+
+    /**
+     * Input over text that is already decoded
+     */
+    final class CharSequenceInput implements TFInput {
+        private final CharSequence content;
+
+        CharSequenceInput(CharSequence content) {
+            this.content = content;
+        }
+
+        @Override
+        public int length() {
+            return content.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return content.charAt(index);
+        }
+
+        @Override
+        public String decode(int start, int end) {
+            return content.subSequence(start, end).toString();
+        }
+    }
+
+    /**
+     * Input over bytes of a charset where every ascii character is encoded as a single byte and no other byte is in the ascii range, such as utf-8
+     */
+    final class ByteInput implements TFInput {
+        private final ByteBuffer buffer;
+        private final Charset charset;
+
+        ByteInput(ByteBuffer buffer, Charset charset) {
+            this.buffer = buffer;
+            this.charset = charset;
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        public String decode(int start, int end) {
+            if (buffer.hasArray()) {
+                return new String(buffer.array(), buffer.arrayOffset() + start, end - start, charset);
+            }
+            //mapped buffers have no backing array, the bytes are copied into a short lived array instead
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, charset);
+        }
+
+        @Override
+        public boolean hasCharUnits() {
+            return charset.equals(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Input over utf-16 encoded bytes, every code unit is two bytes
+     */
+    final class Utf16Input implements TFInput {
+        private final CharBuffer chars;
+
+        Utf16Input(ByteBuffer buffer, ByteOrder order) {
+            this.chars = buffer.duplicate().order(order).asCharBuffer();
+        }
+
+        @Override
+        public int length() {
+            return chars.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars.get(index);
+        }
+
+        @Override
+        public String decode(int start, int end) {
+            char[] result = new char[end - start];
+            chars.get(start, result);
+            return new String(result);
+        }
+    }
+}
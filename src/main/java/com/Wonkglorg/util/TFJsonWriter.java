@@ -0,0 +1,155 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+
+/*
+ * Writes a TFDataObject as json straight to an Appendable, entry by entry, without building the document in memory first.
+ * Strings are escaped in a single pass, unescaped runs are appended as a whole
+ */
+public final class TFJsonWriter {
+
+    /**
+     * Layout of the written json
+     */
+    public enum Style {
+        /**
+         * One entry per line without indentation, the layout {@link TFDataObject#toJson()} has always produced
+         */
+        LINES,
+        /**
+         * No whitespace at all
+         */
+        COMPACT,
+        /**
+         * One entry per line indented by nesting depth
+         */
+        PRETTY
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String INDENT = "  ";
+
+    private final Appendable out;
+    private final Style style;
+
+    /**
+     * Creates a new writer
+     *
+     * @param out   where the json is written to, should be buffered if it writes to a file or stream
+     * @param style the layout to use
+     */
+    public TFJsonWriter(Appendable out, Style style) {
+        this.out = out;
+        this.style = style;
+    }
+
+    /**
+     * Writes an object and all of its children
+     *
+     * @param object the object to write
+     * @throws IOException if the underlying Appendable fails
+     */
+    public void write(TFDataObject object) throws IOException {
+        writeObject(object, 0);
+    }
+
+    private void writeObject(TFDataObject object, int depth) throws IOException {
+        TFChildMap children = object.getContentMap();
+        out.append('{');
+        if (children.isEmpty()) {
+            if (style == Style.LINES) out.append('\n');
+            out.append('}');
+            return;
+        }
+        newLine(depth + 1);
+        //repeated keys are written as repeated json keys in the order they were read
+        int remaining = children.childCount();
+        for (int slot = 0; slot < children.slotLimit(); slot++) {
+            String key = children.keyAt(slot);
+            for (int i = 0; key != null && i < children.countAt(slot); i++) {
+                out.append('"');
+                escape(key, out);
+                out.append(style == Style.COMPACT ? "\":" : "\" : ");
+                TFDataObject child = children.childAt(slot, i);
+                if (child.isValue()) {
+                    out.append('"');
+                    escape(child.getValue(), out);
+                    out.append('"');
+                } else {
+                    writeObject(child, depth + 1);
+                }
+                if (--remaining > 0) {
+                    out.append(',');
+                    newLine(depth + 1);
+                }
+            }
+        }
+        newLine(depth);
+        out.append('}');
+    }
+
+    private void newLine(int depth) throws IOException {
+        if (style == Style.COMPACT) {
+            return;
+        }
+        out.append('\n');
+        if (style == Style.PRETTY) {
+            for (int i = 0; i < depth; i++) {
+                out.append(INDENT);
+            }
+        }
+    }
+
+    /**
+     * Escapes a string for use inside a json string literal
+     *
+     * @param value the string to escape, null is written as an empty string
+     * @param out   where the escaped string is appended to
+     * @throws IOException if the underlying Appendable fails
+     */
+    public static void escape(CharSequence value, Appendable out) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int runStart = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            if (i > runStart) {
+                out.append(value, runStart, i);
+            }
+            runStart = i + 1;
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        if (runStart < length) {
+            out.append(value, runStart, length);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.Wonkglorg.util;
+
+/*
+ * Parses a single level of an object at a time, nested objects are only brace matched to record their range in the input
+ * and get parsed once their content is first accessed. Every deferred object of a tree shares the loader of its input
+ */
+final class TFLazyLoader {
+
+    private final TFInput input;
+    private final TFStringPool pool;
+
+    private TFLazyLoader(TFInput input, TFStringPool pool) {
+        this.input = input;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a lazy root, only the top level is parsed, every object below it is deferred
+     *
+     * @param input the input to parse
+     * @param pool  the pool to canonicalize keys, values and paths with, or null
+     * @return the root DataObject
+     */
+    static TFDataObject load(TFInput input, TFStringPool pool) {
+        TFEvents.Parse event = TFMetrics.isEnabled() ? TFMetrics.startParse() : null;
+        TFLazyLoader loader = new TFLazyLoader(input, pool);
+        TFDataObject root = new TFDataObject("", null, (String) null);
+        TFTokenizer tokenizer = new TFTokenizer(input);
+        String pendingKey = null;
+        while (true) {
+            switch (tokenizer.next()) {
+                case STRING:
+                    if (pendingKey == null) {
+                        pendingKey = tokenizer.text(pool);
+                    } else {
+                        root.getChildMap().add(pendingKey, new TFDataObject("", pendingKey, TFReader.value(tokenizer, pool)));
+                        pendingKey = null;
+                    }
+                    break;
+                case OPEN:
+                    //top level objects are unwrapped into the root
+                    String key = pendingKey == null ? "" : pendingKey;
+                    pendingKey = null;
+                    if (root.getKey() == null) {
+                        root.setKey(key);
+                    }
+                    loader.loadLevel(tokenizer, root.getChildMap(), key);
+                    break;
+                case CLOSE:
+                case CONDITIONAL:
+                    pendingKey = null;
+                    break;
+                case EOF:
+                    if (event != null) {
+                        //only the top level was read, nested objects are parsed on first access
+                        TFMetrics.parsed(event, input.length(), -1, -1);
+                    }
+                    return root;
+            }
+        }
+    }
+
+    /**
+     * Parses the direct children of a deferred object into its map, objects of one tree are read one at a time as they share the pool
+     *
+     * @param start     the index right after the opening brace of the object
+     * @param end       the index of the closing brace of the object
+     * @param target    the map to add the children to
+     * @param childPath the path the children of the object get
+     */
+    synchronized void load(int start, int end, TFChildMap target, String childPath) {
+        loadLevel(new TFTokenizer(input, start, end), target, childPath);
+    }
+
+    /**
+     * Joins a path and a key the same way the tree builder does
+     *
+     * @param parentPath the path of the parent
+     * @param key        the key of the child
+     * @return the joined path
+     */
+    synchronized String childPath(String parentPath, String key) {
+        return parentPath.isEmpty() ? key : TFTreeBuilder.childPath(parentPath, key, pool);
+    }
+
+    private void loadLevel(TFTokenizer tokenizer, TFChildMap target, String childPath) {
+        String pendingKey = null;
+        while (true) {
+            switch (tokenizer.next()) {
+                case STRING:
+                    if (pendingKey == null) {
+                        pendingKey = tokenizer.text(pool);
+                    } else {
+                        target.add(pendingKey, new TFDataObject(childPath, pendingKey, TFReader.value(tokenizer, pool)));
+                        pendingKey = null;
+                    }
+                    break;
+                case OPEN:
+                    String key = pendingKey == null ? "" : pendingKey;
+                    pendingKey = null;
+                    int start = tokenizer.position();
+                    int end = tokenizer.skipObject();
+                    target.add(key, new TFDataObject(childPath, key, this, start, end));
+                    break;
+                case CONDITIONAL:
+                    break;
+                case CLOSE:
+                case EOF:
+                    return;
+            }
+        }
+    }
+}
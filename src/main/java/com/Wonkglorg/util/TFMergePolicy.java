@@ -0,0 +1,21 @@
+package com.Wonkglorg.util;
+
+/*
+ * Decides what happens when two merged objects both contain the same key and at least one side is a value
+ * (two objects under the same key are always merged recursively)
+ */
+public enum TFMergePolicy {
+    /**
+     * The entry of the later object replaces the earlier one
+     */
+    LAST_WINS,
+    /**
+     * The entry of the earlier object is kept, the later one is dropped
+     */
+    FIRST_WINS,
+    /**
+     * Both entries are kept under the same key like a key repeated in a file, lookups see the later one and
+     * {@link TFDataObject#getAll(String)} both. Identical values are only kept once
+     */
+    KEEP_BOTH
+}
@@ -0,0 +1,101 @@
+package com.Wonkglorg.util;
+
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Deep merge of several trees. Only keys present on more than one side are visited, every subtree that exists on a single side
+ * is put into the result by reference. The inputs keep owning those objects, the result copies them before it writes to them
+ * through TFDataObject.get, getAll and add, so changes to the merged tree never reach the inputs
+ */
+final class TFMerger {
+
+    private TFMerger() {
+    }
+
+    /**
+     * Merges the objects into a new root, later objects are merged onto earlier ones
+     *
+     * @param policy  what to do with colliding values
+     * @param objects the objects to merge, null entries are skipped
+     * @return the merged root
+     */
+    static TFDataObject merge(TFMergePolicy policy, TFDataObject... objects) {
+        TFEvents.Merge event = TFMetrics.isEnabled() ? TFMetrics.startMerge() : null;
+        TFDataObject merged = new TFDataObject("", null, (String) null);
+        int count = 0;
+        for (TFDataObject object : objects) {
+            if (object == null) continue;
+            if (merged.getKey() == null) {
+                merged.setKey(object.getKey());
+            }
+            mergeInto(merged, object, merged.getKey() == null ? "" : merged.getKey(), policy);
+            count++;
+        }
+        if (event != null) {
+            TFMetrics.merged(event, count);
+        }
+        return merged;
+    }
+
+    /**
+     * Merges the children of source into target, target has to be created by the merge
+     */
+    private static void mergeInto(TFDataObject target, TFDataObject source, String childPath, TFMergePolicy policy) {
+        TFChildMap targetChildren = target.getChildMap();
+        boolean duplicates = source.hasDuplicates();
+        for (var entry : source.getContentMap().entrySet()) {
+            String key = entry.getKey();
+            TFDataObject incoming = entry.getValue();
+            TFDataObject existing = targetChildren.get(key);
+            if (duplicates && source.getContentMap().getAll(key).size() > 1) {
+                mergeRepeated(targetChildren, key, source.getContentMap().getAll(key), existing != null, policy);
+                continue;
+            }
+            if (existing == null) {
+                targetChildren.put(key, incoming);
+                continue;
+            }
+            if (!existing.isValue() && !incoming.isValue()) {
+                TFDataObject owned = existing;
+                if (!target.owns(existing)) {
+                    owned = existing.copyForWrite(childPath);
+                    targetChildren.replaceLast(key, owned);
+                }
+                mergeInto(owned, incoming, childPath.isEmpty() ? key : childPath + "." + key, policy);
+                continue;
+            }
+            switch (policy) {
+                case LAST_WINS:
+                        targetChildren.put(key, incoming);
+                    break;
+                case FIRST_WINS:
+                    break;
+                case KEEP_BOTH:
+                    if (existing.isValue() && incoming.isValue() && Objects.equals(existing.getValue(), incoming.getValue())) {
+                        break;
+                    }
+                        targetChildren.add(key, incoming);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Merges a key repeated in the source, its children are taken over as they are instead of being merged into each other
+     */
+    private static void mergeRepeated(TFChildMap targetChildren, String key, List<TFDataObject> incoming, boolean exists, TFMergePolicy policy) {
+        if (exists && policy == TFMergePolicy.FIRST_WINS) {
+            return;
+        }
+        boolean replace = exists && policy == TFMergePolicy.LAST_WINS;
+        for (TFDataObject child : incoming) {
+            if (replace) {
+                targetChildren.put(key, child);
+                replace = false;
+            } else {
+                targetChildren.add(key, child);
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Opt in instrumentation of parsing, serializing, merging and path lookups. While disabled every instrumented operation only reads
+ * one volatile flag. While enabled operations update the counters and histograms below, emit flight recorder events (see TFEvents)
+ * and notify the registered listeners. Counters are global for the whole JVM and safe to update and read from any thread
+ */
+public final class TFMetrics {
+
+    private static volatile boolean enabled;
+    private static final List<TFMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static final LongAdder parses = new LongAdder();
+    private static final LongAdder parsedLength = new LongAdder();
+    private static final LongAdder nodes = new LongAdder();
+    private static final LongAdder serializations = new LongAdder();
+    private static final LongAdder serializedChars = new LongAdder();
+    private static final LongAdder merges = new LongAdder();
+    private static final LongAdder lookupHits = new LongAdder();
+    private static final LongAdder lookupMisses = new LongAdder();
+
+    private static final TFHistogram parseNanos = new TFHistogram("parseNanos");
+    private static final TFHistogram parseThroughput = new TFHistogram("parseLengthPerSecond");
+    private static final TFHistogram parseNodes = new TFHistogram("parseNodes");
+    private static final TFHistogram parseDepth = new TFHistogram("parseMaxDepth");
+    private static final TFHistogram serializeNanos = new TFHistogram("serializeNanos");
+    private static final TFHistogram serializedSize = new TFHistogram("serializedChars");
+    private static final TFHistogram mergeNanos = new TFHistogram("mergeNanos");
+
+    private TFMetrics() {
+    }
+
+    /**
+     * Starts recording, metrics are disabled by default
+     */
+    public static void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Stops recording, the collected values are kept until {@link #reset()}
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    /**
+     * @return true if operations are recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds a listener notified of every measurement while metrics are enabled
+     *
+     * @param listener the listener
+     */
+    public static void addListener(TFMetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener
+     *
+     * @param listener the listener
+     */
+    public static void removeListener(TFMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets every counter and histogram back to 0
+     */
+    public static void reset() {
+        for (LongAdder counter : List.of(parses, parsedLength, nodes, serializations, serializedChars, merges, lookupHits, lookupMisses)) {
+            counter.reset();
+        }
+        for (TFHistogram histogram : List.of(parseNanos, parseThroughput, parseNodes, parseDepth, serializeNanos, serializedSize, mergeNanos)) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return how many inputs were parsed
+     */
+    public static long getParses() {
+        return parses.sum();
+    }
+
+    /**
+     * @return the summed length of every parsed input, bytes for utf-8 and latin-1 input, chars otherwise
+     */
+    public static long getParsedLength() {
+        return parsedLength.sum();
+    }
+
+    /**
+     * @return how many values and objects were created by parses that count them, lazy and parallel parses do not
+     */
+    public static long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * @return how many times a tree was written as json or yaml
+     */
+    public static long getSerializations() {
+        return serializations.sum();
+    }
+
+    /**
+     * @return the summed length of every written json and yaml document
+     */
+    public static long getSerializedChars() {
+        return serializedChars.sum();
+    }
+
+    /**
+     * @return how many merges were done
+     */
+    public static long getMerges() {
+        return merges.sum();
+    }
+
+    /**
+     * @return how many path lookups found an object
+     */
+    public static long getLookupHits() {
+        return lookupHits.sum();
+    }
+
+    /**
+     * @return how many path lookups found nothing
+     */
+    public static long getLookupMisses() {
+        return lookupMisses.sum();
+    }
+
+    /**
+     * @return the duration of every parse in nanoseconds
+     */
+    public static TFHistogram getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return the input length parsed per second by every parse
+     */
+    public static TFHistogram getParseThroughput() {
+        return parseThroughput;
+    }
+
+    /**
+     * @return the node count of every counted parse
+     */
+    public static TFHistogram getParseNodes() {
+        return parseNodes;
+    }
+
+    /**
+     * @return the deepest nesting level of every counted parse
+     */
+    public static TFHistogram getParseDepth() {
+        return parseDepth;
+    }
+
+    /**
+     * @return the duration of every serialization in nanoseconds
+     */
+    public static TFHistogram getSerializeNanos() {
+        return serializeNanos;
+    }
+
+    /**
+     * @return the length of every written json and yaml document
+     */
+    public static TFHistogram getSerializedSize() {
+        return serializedSize;
+    }
+
+    /**
+     * @return the duration of every merge in nanoseconds
+     */
+    public static TFHistogram getMergeNanos() {
+        return mergeNanos;
+    }
+
+    //-------recording, only called while enabled ---------
+
+    static TFEvents.Parse startParse() {
+        TFEvents.Parse event = new TFEvents.Parse();
+        event.begin();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    /**
+     * Records a finished parse
+     *
+     * @param nodes    the node count or -1 if the parser does not count nodes
+     * @param maxDepth the deepest level or -1 if the parser does not count nodes
+     */
+    static void parsed(TFEvents.Parse event, long length, long nodes, int maxDepth) {
+        long nanos = System.nanoTime() - event.startNanos;
+        event.length = length;
+        event.nodes = nodes;
+        event.maxDepth = maxDepth;
+        event.commit();
+        parses.increment();
+        parsedLength.add(length);
+        parseNanos.record(nanos);
+        parseThroughput.record(nanos == 0 ? length : length * TimeUnit.SECONDS.toNanos(1) / nanos);
+        if (nodes >= 0) {
+            TFMetrics.nodes.add(nodes);
+            parseNodes.record(nodes);
+            parseDepth.record(maxDepth);
+        }
+        for (TFMetricsListener listener : listeners) {
+            listener.parsed(length, nodes, maxDepth, nanos);
+        }
+    }
+
+    static TFEvents.Serialize startSerialize(String format) {
+        TFEvents.Serialize event = new TFEvents.Serialize();
+        event.begin();
+        event.format = format;
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    static void serialized(TFEvents.Serialize event, long chars) {
+        long nanos = System.nanoTime() - event.startNanos;
+        event.chars = chars;
+        event.commit();
+        serializations.increment();
+        serializedChars.add(chars);
+        serializeNanos.record(nanos);
+        serializedSize.record(chars);
+        for (TFMetricsListener listener : listeners) {
+            listener.serialized(event.format, chars, nanos);
+        }
+    }
+
+    static TFEvents.Merge startMerge() {
+        TFEvents.Merge event = new TFEvents.Merge();
+        event.begin();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    static void merged(TFEvents.Merge event, int objects) {
+        long nanos = System.nanoTime() - event.startNanos;
+        event.objects = objects;
+        event.commit();
+        merges.increment();
+        mergeNanos.record(nanos);
+        for (TFMetricsListener listener : listeners) {
+            listener.merged(objects, nanos);
+        }
+    }
+
+    static void lookup(boolean hit) {
+        (hit ? lookupHits : lookupMisses).increment();
+        for (TFMetricsListener listener : listeners) {
+            listener.lookup(hit);
+        }
+    }
+
+    /**
+     * Counts the chars written to an Appendable
+     */
+    static final class CountingAppendable implements Appendable {
+        private final Appendable out;
+        private long count;
+
+        CountingAppendable(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            CharSequence text = csq == null ? "null" : csq;
+            count += text.length();
+            out.append(text);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            if (csq == null) csq = "null";
+            count += end - start;
+            out.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            count++;
+            out.append(c);
+            return this;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.Wonkglorg.util;
+
+/*
+ * Receives every measurement while metrics are enabled, see {@link TFMetrics}. Implement it to forward measurements to
+ * another metrics system. Methods are called on the thread doing the work and should return quickly
+ */
+public interface TFMetricsListener {
+
+    /**
+     * Called after an input was parsed
+     *
+     * @param length   the length of the input, bytes for utf-8 and latin-1 input, chars otherwise
+     * @param nodes    how many values and objects were created, -1 for lazy and parallel parses that do not count them
+     * @param maxDepth the deepest nesting level, -1 if not counted
+     * @param nanos    how long the parse took
+     */
+    default void parsed(long length, long nodes, int maxDepth, long nanos) {
+    }
+
+    /**
+     * Called after a tree was written
+     *
+     * @param format the format, "json" or "yaml"
+     * @param chars  how many chars were written
+     * @param nanos  how long writing took
+     */
+    default void serialized(String format, long chars, long nanos) {
+    }
+
+    /**
+     * Called after trees were merged
+     *
+     * @param objects how many trees were merged
+     * @param nanos   how long the merge took
+     */
+    default void merged(int objects, long nanos) {
+    }
+
+    /**
+     * Called after a path was looked up
+     *
+     * @param hit true if an object exists at the path
+     */
+    default void lookup(boolean hit) {
+    }
+}
@@ -0,0 +1,310 @@
+package com.Wonkglorg.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Parses large objects in parallel on a ForkJoinPool.
+ * A single scan over the input records every entry with where its key starts and, for objects, the range of its body.
+ * Once an object is closed and turns out to be small its nested entries are dropped again, so only the children of objects
+ * larger than SPLIT_THRESHOLD stay recorded. Large children are split again from the recorded entries, small ones are grouped
+ * into batches of roughly SPLIT_THRESHOLD characters and built from their range, nothing is scanned a second time before it is built.
+ * Every task builds its own subtrees, the results are put into the parent's map in source order once all tasks of that level finished.
+ * Every task looks up strings through a pool of its own in front of the given one, so the workers do not share a lock
+ */
+final class TFParallelParser {
+
+    /**
+     * Objects with a body smaller than this amount of code units are parsed sequentially
+     */
+    static final int SPLIT_THRESHOLD = 256 * 1024;
+    private static final int NONE = -1;
+
+    private final TFInput input;
+    //the pool every task's own pool looks up its misses in
+    private final TFStringPool pool;
+
+    //per entry: where its key token starts or NONE, the body of objects or NONE for values, the children of large objects
+    private int[] keyAt = new int[64];
+    private int[] start = new int[64];
+    private int[] end = new int[64];
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    private int entries;
+    private int firstTopLevel = NONE;
+
+    private TFParallelParser(TFInput input, TFStringPool pool) {
+        this.input = input;
+        this.pool = pool;
+    }
+
+    /**
+     * Parses the input into a new root object, the first top level object is unwrapped into the root
+     *
+     * @param input        the input to parse
+     * @param pool         the pool to canonicalize keys, values and paths with, or null
+     * @param forkJoinPool the pool to run the tasks on
+     * @return the root DataObject
+     */
+    static TFDataObject parse(TFInput input, TFStringPool pool, ForkJoinPool forkJoinPool) {
+        TFParallelParser parser = new TFParallelParser(input, pool);
+        TFEvents.Parse event = TFMetrics.isEnabled() ? TFMetrics.startParse() : null;
+        parser.scan();
+        TFDataObject root = forkJoinPool.invoke(new RecursiveTask<TFDataObject>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected TFDataObject compute() {
+                return parser.parseRoot();
+            }
+        });
+        if (event != null) {
+            //the chunks are built on several threads, nodes are not counted
+            TFMetrics.parsed(event, input.length(), -1, -1);
+        }
+        return root;
+    }
+
+    //-------scanning ---------
+
+    /**
+     * Records the entries of the input, the entries below an object are only kept if the object is large
+     */
+    private void scan() {
+        TFTokenizer tokenizer = new TFTokenizer(input);
+        //open[d] is the entry of the object at depth d, last[d] its last child so far, depth 0 is the top level
+        int[] open = new int[16];
+        int[] last = new int[16];
+        int depth = 0;
+        last[0] = NONE;
+        int pendingKey = NONE;
+        while (true) {
+            int before = tokenizer.position();
+            switch (tokenizer.next()) {
+                case STRING:
+                    if (pendingKey == NONE) {
+                        pendingKey = before;
+                    } else {
+                        link(open, last, depth, addEntry(pendingKey, NONE));
+                        pendingKey = NONE;
+                    }
+                    break;
+                case OPEN:
+                    int entry = addEntry(pendingKey, tokenizer.position());
+                    link(open, last, depth, entry);
+                    pendingKey = NONE;
+                    if (++depth == open.length) {
+                        open = Arrays.copyOf(open, depth * 2);
+                        last = Arrays.copyOf(last, depth * 2);
+                    }
+                    open[depth] = entry;
+                    last[depth] = NONE;
+                    break;
+                case CLOSE:
+                    //stray closing braces on the top level are ignored
+                    if (depth > 0) {
+                        close(open[depth--], tokenizer.tokenStart());
+                    }
+                    pendingKey = NONE;
+                    break;
+                case CONDITIONAL:
+                    break;
+                case EOF:
+                    //objects without closing brace run to the end of the input
+                    while (depth > 0) {
+                        close(open[depth--], input.length());
+                    }
+                    return;
+            }
+        }
+    }
+
+    private int addEntry(int key, int bodyStart) {
+        if (entries == keyAt.length) {
+            int capacity = entries * 2;
+            keyAt = Arrays.copyOf(keyAt, capacity);
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+        }
+        int entry = entries++;
+        keyAt[entry] = key;
+        start[entry] = bodyStart;
+        end[entry] = NONE;
+        firstChild[entry] = NONE;
+        nextSibling[entry] = NONE;
+        return entry;
+    }
+
+    private void link(int[] open, int[] last, int depth, int entry) {
+        int previous = last[depth];
+        if (previous != NONE) {
+            nextSibling[previous] = entry;
+        } else if (depth == 0) {
+            firstTopLevel = entry;
+        } else {
+            firstChild[open[depth]] = entry;
+        }
+        last[depth] = entry;
+    }
+
+    private void close(int entry, int bodyEnd) {
+        end[entry] = bodyEnd;
+        if (bodyEnd - start[entry] <= SPLIT_THRESHOLD) {
+            //the object is built from its range, everything recorded inside it comes after it
+            entries = entry + 1;
+            firstChild[entry] = NONE;
+        }
+    }
+
+    //-------building ---------
+
+    private TFDataObject parseRoot() {
+        TFStringPool pool = taskPool();
+        try {
+            TFDataObject root = new TFDataObject("", null, (String) null);
+            TFTokenizer tokenizer = new TFTokenizer(input);
+            for (int entry = firstTopLevel; entry != NONE; entry = nextSibling[entry]) {
+                String key = key(entry, tokenizer, pool);
+                if (start[entry] == NONE) {
+                    root.getChildMap().add(key, new TFDataObject("", key, TFReader.value(tokenizer, pool)));
+                    continue;
+                }
+                //top level objects are unwrapped into the root
+                if (root.getKey() == null) {
+                    root.setKey(key);
+                }
+                fillChildren(root, key, entry, pool);
+            }
+            return root;
+        } finally {
+            if (pool != null) pool.release();
+        }
+    }
+
+    /**
+     * Decodes the key of an entry, for values the tokenizer is left on the value
+     */
+    private String key(int entry, TFTokenizer tokenizer, TFStringPool pool) {
+        if (keyAt[entry] == NONE) {
+            return "";
+        }
+        tokenizer.reset(keyAt[entry]);
+        tokenizer.next();
+        String key = tokenizer.text(pool);
+        if (start[entry] == NONE) {
+            //conditionals between a key and its value are skipped like everywhere else
+            while (tokenizer.next() == TFTokenizer.Token.CONDITIONAL) {
+                //the value follows the conditional
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Parses the body of an object into its map, splitting it into tasks along the recorded children if it is large
+     */
+    private void fillChildren(TFDataObject target, String childPath, int object, TFStringPool pool) {
+        if (firstChild[object] == NONE) {
+            TFTreeBuilder.buildChildren(input, start[object], end[object], target, childPath, pool);
+            return;
+        }
+        int count = 0;
+        for (int entry = firstChild[object]; entry != NONE; entry = nextSibling[entry]) {
+            count++;
+        }
+        TFTokenizer tokenizer = new TFTokenizer(input);
+        String[] keys = new String[count];
+        TFDataObject[] results = new TFDataObject[count];
+        List<RecursiveAction> tasks = new ArrayList<>();
+        int[] batch = new int[16];
+        int[] batchSlots = new int[16];
+        int batchCount = 0;
+        int batchSize = 0;
+        int slot = 0;
+        for (int entry = firstChild[object]; entry != NONE; entry = nextSibling[entry], slot++) {
+            String key = key(entry, tokenizer, pool);
+            keys[slot] = key;
+            if (start[entry] == NONE) {
+                results[slot] = new TFDataObject(childPath, key, TFReader.value(tokenizer, pool));
+                continue;
+            }
+            int size = end[entry] - start[entry];
+            if (size > SPLIT_THRESHOLD) {
+                tasks.add(new ObjectTask(new int[]{entry}, new int[]{slot}, 1, keys, childPath, results));
+                continue;
+            }
+            if (batchCount == batch.length) {
+                batch = Arrays.copyOf(batch, batchCount * 2);
+                batchSlots = Arrays.copyOf(batchSlots, batchCount * 2);
+            }
+            batch[batchCount] = entry;
+            batchSlots[batchCount++] = slot;
+            batchSize += size;
+            if (batchSize > SPLIT_THRESHOLD) {
+                tasks.add(new ObjectTask(batch, batchSlots, batchCount, keys, childPath, results));
+                batch = new int[16];
+                batchSlots = new int[16];
+                batchCount = 0;
+                batchSize = 0;
+            }
+        }
+        if (batchCount > 0) {
+            tasks.add(new ObjectTask(batch, batchSlots, batchCount, keys, childPath, results));
+        }
+        RecursiveAction.invokeAll(tasks);
+
+        TFChildMap children = target.getChildMap();
+        for (int i = 0; i < count; i++) {
+            children.add(keys[i], results[i]);
+        }
+    }
+
+    private TFStringPool taskPool() {
+        return pool == null ? null : pool.forParse(true);
+    }
+
+    /**
+     * Parses one or more sibling objects from their recorded entries, each result is written to its own slot so no synchronization is needed
+     */
+    private final class ObjectTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] objects;
+        private final int[] slots;
+        private final int count;
+        private final String[] keys;
+        private final String path;
+        private final TFDataObject[] results;
+
+        private ObjectTask(int[] objects, int[] slots, int count, String[] keys, String path, TFDataObject[] results) {
+            this.objects = objects;
+            this.slots = slots;
+            this.count = count;
+            this.keys = keys;
+            this.path = path;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            TFStringPool pool = taskPool();
+            try {
+                for (int i = 0; i < count; i++) {
+                    String key = keys[slots[i]];
+                    TFDataObject object = new TFDataObject(path, key, (String) null);
+                    String childPath = path.isEmpty() ? key : TFTreeBuilder.childPath(path, key, pool);
+                    fillChildren(object, childPath, objects[i], pool);
+                    results[slots[i]] = object;
+                }
+            } finally {
+                if (pool != null) pool.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.Wonkglorg.util;
+
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Options controlling how TFDataObject.from parses its input
+ */
+public final class TFParseOptions {
+
+    private boolean lazy;
+    private TFStringPool stringPool;
+    private boolean pooled;
+    private boolean snapshots;
+    private ForkJoinPool forkJoinPool;
+
+    private TFParseOptions() {
+    }
+
+    /**
+     * @return a new set of options with everything disabled, matching the behavior of the plain from methods
+     */
+    public static TFParseOptions defaults() {
+        return new TFParseOptions();
+    }
+
+    /**
+     * Sets if objects should only be parsed the first time they are accessed.
+     * A lazy tree keeps a reference to its input (for files the memory mapped buffer) until every object has been accessed
+     *
+     * @param lazy true to parse lazily
+     * @return this options
+     */
+    public TFParseOptions lazy(boolean lazy) {
+        this.lazy = lazy;
+        return this;
+    }
+
+    /**
+     * @return true if objects are only parsed the first time they are accessed
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Sets if keys, short values and paths are canonicalized with a new pool for every parse, the pool is dropped together with the tree
+     *
+     * @param pooled true to pool strings per parse
+     * @return this options
+     */
+    public TFParseOptions pooled(boolean pooled) {
+        this.pooled = pooled;
+        return this;
+    }
+
+    /**
+     * @return true if every parse canonicalizes its strings with a pool of its own
+     */
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    /**
+     * Sets the pool keys, short values and paths are canonicalized with, passing the same pool to several parses deduplicates across files.
+     * A pool from the constructor may only be used by one parse at a time, use {@link TFStringPool#shared()} for parses on several threads
+     *
+     * @param stringPool the pool to use, or null to not pool strings
+     * @return this options
+     */
+    public TFParseOptions stringPool(TFStringPool stringPool) {
+        this.stringPool = stringPool;
+        return this;
+    }
+
+    /**
+     * @return the pool strings are canonicalized with, or null
+     */
+    public TFStringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * @return the pool a parse with these options starts from, the set pool, a new one if pooled or null
+     */
+    TFStringPool parsePool() {
+        if (stringPool != null) {
+            return stringPool;
+        }
+        return pooled ? new TFStringPool() : null;
+    }
+
+    /**
+     * Sets if large objects should be parsed in parallel on the common ForkJoinPool, ignored for lazy parsing
+     *
+     * @param parallel true to parse in parallel
+     * @return this options
+     */
+    public TFParseOptions parallel(boolean parallel) {
+        this.forkJoinPool = parallel ? ForkJoinPool.commonPool() : null;
+        return this;
+    }
+
+    /**
+     * Sets the pool large objects are parsed in parallel on, ignored for lazy parsing
+     *
+     * @param forkJoinPool the pool to use, or null to parse sequentially
+     * @return this options
+     */
+    public TFParseOptions parallel(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+        return this;
+    }
+
+    /**
+     * @return the pool large objects are parsed in parallel on, or null if parsing is sequential
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * Sets if files should be loaded through a binary sidecar snapshot, see {@link TFSnapshot}.
+     * The snapshot is used while it matches the file and regenerated once it does not, only applies when parsing files
+     *
+     * @param snapshots true to use snapshots
+     * @return this options
+     */
+    public TFParseOptions snapshots(boolean snapshots) {
+        this.snapshots = snapshots;
+        return this;
+    }
+
+    /**
+     * @return true if files are loaded through a binary sidecar snapshot
+     */
+    public boolean isSnapshots() {
+        return snapshots;
+    }
+}
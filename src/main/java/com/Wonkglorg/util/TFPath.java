@@ -0,0 +1,132 @@
+package com.Wonkglorg.util;
+
+import java.util.Arrays;
+
+/*
+ * A dotted path such as "items.5021.attributes" split into its keys once, so it can be reused for any number of lookups
+ * without splitting the string again. Lookups with a TFPath walk the tree without allocating
+ */
+public final class TFPath {
+
+    private static final TFPath EMPTY = new TFPath(new String[0], "");
+
+    private final String[] segments;
+    private final String dotted;
+
+    private TFPath(String[] segments, String dotted) {
+        this.segments = segments;
+        this.dotted = dotted;
+    }
+
+    /**
+     * Compiles a dotted path, an empty or null path points to the object it is resolved against
+     *
+     * @param path the dotted path
+     * @return the compiled path
+     */
+    public static TFPath of(String path) {
+        if (path == null || path.isEmpty()) {
+            return EMPTY;
+        }
+        int count = 1;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '.') count++;
+        }
+        String[] segments = new String[count];
+        int start = 0;
+        for (int i = 0; i < count - 1; i++) {
+            int end = path.indexOf('.', start);
+            segments[i] = path.substring(start, end);
+            start = end + 1;
+        }
+        segments[count - 1] = path.substring(start);
+        return new TFPath(segments, path);
+    }
+
+    /**
+     * Creates a path from its keys, keys may contain dots themselves
+     *
+     * @param segments the keys of the path
+     * @return the compiled path
+     */
+    public static TFPath of(String... segments) {
+        if (segments.length == 0) {
+            return EMPTY;
+        }
+        return new TFPath(segments.clone(), String.join(".", segments));
+    }
+
+    /**
+     * @return the amount of keys in this path
+     */
+    public int size() {
+        return segments.length;
+    }
+
+    /**
+     * @return true if the path has no keys
+     */
+    public boolean isEmpty() {
+        return segments.length == 0;
+    }
+
+    /**
+     * Gets a key of the path
+     *
+     * @param index the index of the key
+     * @return the key
+     */
+    public String segment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * @return the last key of the path or null if it is empty
+     */
+    public String last() {
+        return segments.length == 0 ? null : segments[segments.length - 1];
+    }
+
+    /**
+     * @return the path without its last key
+     */
+    public TFPath parent() {
+        if (segments.length <= 1) {
+            return EMPTY;
+        }
+        String[] parentSegments = Arrays.copyOf(segments, segments.length - 1);
+        return new TFPath(parentSegments, String.join(".", parentSegments));
+    }
+
+    /**
+     * Creates a new path one level below this one
+     *
+     * @param key the key to append
+     * @return the new path
+     */
+    public TFPath child(String key) {
+        String[] childSegments = Arrays.copyOf(segments, segments.length + 1);
+        childSegments[segments.length] = key;
+        return new TFPath(childSegments, dotted.isEmpty() ? key : dotted + "." + key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TFPath)) return false;
+        return Arrays.equals(segments, ((TFPath) o).segments);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(segments);
+    }
+
+    /**
+     * @return the dotted form of this path
+     */
+    @Override
+    public String toString() {
+        return dotted;
+    }
+}
@@ -0,0 +1,101 @@
+package com.Wonkglorg.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Index from every dotted path below a root to its object, turning deep lookups into a single hash lookup.
+ * The index is a snapshot of the tree when it was built, it has to be rebuilt after objects are added or removed.
+ * Building an index over a lazily parsed tree parses the whole tree
+ */
+public final class TFPathIndex {
+
+    private final TFDataObject root;
+    private final Map<String, TFDataObject> nodes;
+
+    private TFPathIndex(TFDataObject root, Map<String, TFDataObject> nodes) {
+        this.root = root;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Indexes every object below the root by its dotted path relative to the root, the same path {@link TFDataObject#get(String)} accepts
+     *
+     * @param root the object to index
+     * @return the new index
+     */
+    public static TFPathIndex of(TFDataObject root) {
+        Map<String, TFDataObject> nodes = new HashMap<>();
+        indexChildren(root, "", nodes);
+        return new TFPathIndex(root, nodes);
+    }
+
+    private static void indexChildren(TFDataObject object, String path, Map<String, TFDataObject> nodes) {
+        for (var entry : object.getContentMap().entrySet()) {
+            String childPath = path.isEmpty() ? entry.getKey() : path + "." + entry.getKey();
+            TFDataObject child = entry.getValue();
+            nodes.put(childPath, child);
+            if (!child.isValue()) {
+                indexChildren(child, childPath, nodes);
+            }
+        }
+    }
+
+    /**
+     * Gets an object by its path
+     *
+     * @param path the dotted path relative to the indexed root, an empty path returns the root
+     * @return the object or null if it does not exist
+     */
+    public TFDataObject get(String path) {
+        if (path == null || path.isEmpty()) {
+            return root;
+        }
+        return nodes.get(path);
+    }
+
+    /**
+     * Gets an object by its path
+     *
+     * @param path the path relative to the indexed root
+     * @return the object or null if it does not exist
+     */
+    public TFDataObject get(TFPath path) {
+        return get(path.toString());
+    }
+
+    /**
+     * Checks if an object exists at the path
+     *
+     * @param path the dotted path relative to the indexed root
+     * @return true if an object exists
+     */
+    public boolean containsKey(String path) {
+        return get(path) != null;
+    }
+
+    /**
+     * Gets the value at the path
+     *
+     * @param path the dotted path relative to the indexed root
+     * @return the value or null if the object does not exist or is not a value
+     */
+    public String getValue(String path) {
+        TFDataObject object = get(path);
+        return object == null ? null : object.getValue();
+    }
+
+    /**
+     * @return the amount of indexed objects
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the root this index was built for
+     */
+    public TFDataObject getRoot() {
+        return root;
+    }
+}
@@ -0,0 +1,196 @@
+package com.Wonkglorg.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Flattens the prefab inheritance of items_game style trees. An object inherits from every prefab named in its space separated
+ * "prefab" value, prefabs may inherit from other prefabs. Later prefabs override earlier ones and the object itself overrides all of them.
+ * Every prefab is flattened once and memoized, resolved objects are cached by path so repeated lookups are a map lookup.
+ * Chains are walked with an explicit stack and cycles are reported instead of recursing forever.
+ * Flattened objects share unchanged subtrees with the source tree, see {@link TFDataObject#merge(TFDataObject...)}
+ */
+public final class TFPrefabResolver {
+
+    /**
+     * Key naming the prefabs an object inherits from
+     */
+    public static final String PREFAB_KEY = "prefab";
+
+    private final TFDataObject root;
+    private final TFDataObject prefabs;
+    private final Map<String, TFDataObject> resolvedPrefabs = new HashMap<>();
+    private final Map<String, TFDataObject> resolvedPaths = new HashMap<>();
+
+    private TFPrefabResolver(TFDataObject root, TFDataObject prefabs) {
+        this.root = root;
+        this.prefabs = prefabs;
+    }
+
+    /**
+     * Creates a resolver reading prefabs from the "prefabs" section of the root, as in items_game.txt
+     *
+     * @param root the root of the tree
+     * @return the new resolver
+     */
+    public static TFPrefabResolver of(TFDataObject root) {
+        return of(root, "prefabs");
+    }
+
+    /**
+     * Creates a resolver reading prefabs from the given section
+     *
+     * @param root        the root of the tree
+     * @param prefabsPath the dotted path to the object holding every prefab by name
+     * @return the new resolver
+     */
+    public static TFPrefabResolver of(TFDataObject root, String prefabsPath) {
+        return new TFPrefabResolver(root, root.get(prefabsPath));
+    }
+
+    /**
+     * Gets an object with its prefabs applied, resolved on first access and cached afterwards
+     *
+     * @param path the dotted path to the object, for example "items.5021"
+     * @return the flattened object or null if the path does not exist
+     * @throws IllegalStateException if prefabs inherit from each other in a cycle
+     */
+    public synchronized TFDataObject get(String path) {
+        TFDataObject resolved = resolvedPaths.get(path);
+        if (resolved == null) {
+            TFDataObject object = root.get(path);
+            if (object == null) {
+                return null;
+            }
+            resolved = resolve(object);
+            resolvedPaths.put(path, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Applies prefabs to an object without caching the result
+     *
+     * @param object the object to flatten
+     * @return the flattened object, the object itself if it has no prefabs
+     * @throws IllegalStateException if prefabs inherit from each other in a cycle
+     */
+    public synchronized TFDataObject resolve(TFDataObject object) {
+        List<String> names = prefabNames(object);
+        if (names.isEmpty()) {
+            return object;
+        }
+        List<TFDataObject> layers = new ArrayList<>(names.size() + 1);
+        for (String name : names) {
+            TFDataObject prefab = prefab(name);
+            if (prefab != null) layers.add(prefab);
+        }
+        layers.add(object);
+        TFDataObject merged = TFDataObject.merge(TFMergePolicy.LAST_WINS, layers.toArray(new TFDataObject[0]));
+        merged.setKey(object.getKey());
+        return merged;
+    }
+
+    /**
+     * Resolves every direct child of a section, for example every item of "items". Repeated keys keep every child in file order.
+     * The result shares its children with the source tree and the cache, they are copied before they are written to through the result
+     *
+     * @param sectionPath the dotted path to the section
+     * @return a new object holding the flattened children by key, empty if the section does not exist
+     * @throws IllegalStateException if prefabs inherit from each other in a cycle
+     */
+    public synchronized TFDataObject resolveAll(String sectionPath) {
+        TFDataObject section = root.get(sectionPath);
+        TFDataObject result = new TFDataObject("", section == null ? null : section.getKey(), (String) null);
+        if (section == null) {
+            return result;
+        }
+        String prefix = sectionPath.isEmpty() ? "" : sectionPath + ".";
+        TFChildMap children = result.getContentMap();
+        for (var entry : section.getContentMap().entrySet()) {
+            List<TFDataObject> all = section.getContentMap().getAll(entry.getKey());
+            for (TFDataObject child : all) {
+                if (child.isValue()) {
+                    children.add(entry.getKey(), child);
+                    continue;
+                }
+                //only a key holding a single child is reachable by path and cached
+                TFDataObject resolved = all.size() == 1 ? resolvedPaths.computeIfAbsent(prefix + entry.getKey(), path -> resolve(child)) : resolve(child);
+                //a merged object belongs to nobody yet, a shallow copy keeps the result from owning and changing the cached one
+                children.add(entry.getKey(), resolved == child ? child : resolved.copyForWrite(resolved.getPath()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets a prefab with its own prefabs applied
+     *
+     * @param name the name of the prefab
+     * @return the flattened prefab or null if there is no prefab with this name
+     * @throws IllegalStateException if prefabs inherit from each other in a cycle
+     */
+    public synchronized TFDataObject prefab(String name) {
+        TFDataObject resolved = resolvedPrefabs.get(name);
+        if (resolved != null || prefabs == null) {
+            return resolved;
+        }
+        //depth first over the inheritance chain, a prefab is flattened once all of its parents are
+        Deque<String> stack = new ArrayDeque<>();
+        Set<String> resolving = new LinkedHashSet<>();
+        stack.push(name);
+        resolving.add(name);
+        while (!stack.isEmpty()) {
+            String current = stack.peek();
+            TFDataObject source = prefabs.getChild(current);
+            String pending = null;
+            if (source != null && !source.isValue()) {
+                for (String parent : prefabNames(source)) {
+                    if (resolvedPrefabs.containsKey(parent) || prefabs.getChild(parent) == null) continue;
+                    if (resolving.contains(parent)) {
+                        throw new IllegalStateException("Prefab cycle: " + String.join(" -> ", resolving) + " -> " + parent);
+                    }
+                    pending = parent;
+                    break;
+                }
+            }
+            if (pending != null) {
+                stack.push(pending);
+                resolving.add(pending);
+                continue;
+            }
+            stack.pop();
+            resolving.remove(current);
+            if (source != null) {
+                resolvedPrefabs.put(current, source.isValue() ? source : resolve(source));
+            }
+        }
+        return resolvedPrefabs.get(name);
+    }
+
+    /**
+     * Drops every memoized prefab and object, needed after the source tree was modified
+     */
+    public synchronized void clearCache() {
+        resolvedPrefabs.clear();
+        resolvedPaths.clear();
+    }
+
+    private static List<String> prefabNames(TFDataObject object) {
+        TFDataObject prefab = object.getChild(PREFAB_KEY);
+        if (prefab == null || !prefab.isValue()) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : prefab.getValue().trim().split("\\s+")) {
+            if (!name.isEmpty()) names.add(name);
+        }
+        return names;
+    }
+}
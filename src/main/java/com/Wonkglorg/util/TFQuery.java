@@ -0,0 +1,410 @@
+package com.Wonkglorg.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Compiled path query such as "items.*.attributes.*.attribute_class" or "items.**.item_slot=primary".
+ * A query is a dotted list of segments, each segment is matched against one key:
+ *
+ *   name         the key "name"
+ *   *            any key
+ *   item_*       any key matching the glob, * matches any run of characters and ? a single character
+ *   **           any amount of keys including none
+ *   key=value    only on the last segment, a value whose key and value both match (both may be globs), the value may contain dots
+ *
+ * The query is compiled once into a list of steps and evaluated against a tree by following every step that is still possible
+ * at the same time. Subtrees in which no step can match anymore are never entered, and if only literal keys can match next
+ * the children are looked up by key instead of being iterated. Every child of a repeated key is visited. Matches are found lazily one at a time while iterating
+ */
+public final class TFQuery {
+
+    private static final int MAX_STEPS = 63;
+
+    private final String expression;
+    private final Step[] steps;
+    //bit i is set if step i is "**"
+    private final long descendantSteps;
+    //bit i is set if step i is a literal key
+    private final long literalSteps;
+
+    private TFQuery(String expression, Step[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+        long descendant = 0;
+        long literal = 0;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i].descendant) descendant |= 1L << i;
+            if (steps[i].key.isLiteral()) literal |= 1L << i;
+        }
+        this.descendantSteps = descendant;
+        this.literalSteps = literal;
+    }
+
+    /**
+     * Compiles a query
+     *
+     * @param expression the query, an empty or null query matches the object it is run against
+     * @return the compiled query
+     * @throws IllegalArgumentException if the query is malformed
+     */
+    public static TFQuery compile(String expression) {
+        //the value may contain dots, it is split off before the path is split into segments
+        int equals = expression == null ? -1 : expression.indexOf('=');
+        TFPath path = TFPath.of(equals < 0 ? expression : expression.substring(0, equals));
+        if (path.size() > MAX_STEPS) {
+            throw new IllegalArgumentException("Query has more than " + MAX_STEPS + " segments: " + expression);
+        }
+        Step[] steps = new Step[path.size()];
+        for (int i = 0; i < steps.length; i++) {
+            String segment = path.segment(i);
+            if (segment.equals("**")) {
+                steps[i] = new Step(Glob.ANY, null, true);
+            } else if (equals >= 0 && i == steps.length - 1) {
+                steps[i] = new Step(Glob.of(segment), Glob.of(expression.substring(equals + 1)), false);
+            } else {
+                steps[i] = new Step(Glob.of(segment), null, false);
+            }
+            if (steps[i].key.pattern.isEmpty()) {
+                throw new IllegalArgumentException("Query contains an empty segment: " + expression);
+            }
+        }
+        if (equals >= 0 && (steps.length == 0 || steps[steps.length - 1].value == null)) {
+            throw new IllegalArgumentException("A value can only be compared on the last segment after a key: " + expression);
+        }
+        return new TFQuery(expression == null ? "" : expression, steps);
+    }
+
+    /**
+     * Runs the query lazily, the tree is only walked as far as needed to find the next match
+     *
+     * @param root the object to run the query against, paths are relative to it
+     * @return an iterator over the matching objects in depth first order
+     */
+    public Iterator<TFDataObject> iterator(TFDataObject root) {
+        return new Matches(root);
+    }
+
+    /**
+     * Runs the query lazily, see {@link #iterator(TFDataObject)}
+     *
+     * @param root the object to run the query against
+     * @return a sequential stream of the matching objects
+     */
+    public Stream<TFDataObject> stream(TFDataObject root) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(root), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Runs the query and collects every match
+     *
+     * @param root the object to run the query against
+     * @return all matching objects in depth first order
+     */
+    public List<TFDataObject> list(TFDataObject root) {
+        List<TFDataObject> matches = new ArrayList<>();
+        iterator(root).forEachRemaining(matches::add);
+        return matches;
+    }
+
+    /**
+     * Collects the matches as ints in match order without boxing, for example every "items.*.min_ilevel", see {@link TFDataObject#asInt(int)}
+     *
+     * @param root         the object to run the query on
+     * @param defaultValue used for matches that are objects or not numbers
+     * @return the column of values
+     */
+    public int[] ints(TFDataObject root, int defaultValue) {
+        int[] column = new int[16];
+        int size = 0;
+        for (Iterator<TFDataObject> matches = iterator(root); matches.hasNext(); ) {
+            if (size == column.length) column = Arrays.copyOf(column, size * 2);
+            column[size++] = matches.next().asInt(defaultValue);
+        }
+        return Arrays.copyOf(column, size);
+    }
+
+    /**
+     * Collects the matches as longs in match order without boxing, see {@link #ints(TFDataObject, int)}
+     *
+     * @param root         the object to run the query on
+     * @param defaultValue used for matches that are objects or not numbers
+     * @return the column of values
+     */
+    public long[] longs(TFDataObject root, long defaultValue) {
+        long[] column = new long[16];
+        int size = 0;
+        for (Iterator<TFDataObject> matches = iterator(root); matches.hasNext(); ) {
+            if (size == column.length) column = Arrays.copyOf(column, size * 2);
+            column[size++] = matches.next().asLong(defaultValue);
+        }
+        return Arrays.copyOf(column, size);
+    }
+
+    /**
+     * Collects the matches as floats in match order without boxing, see {@link #ints(TFDataObject, int)}
+     *
+     * @param root         the object to run the query on
+     * @param defaultValue used for matches that are objects or not numbers
+     * @return the column of values
+     */
+    public float[] floats(TFDataObject root, float defaultValue) {
+        float[] column = new float[16];
+        int size = 0;
+        for (Iterator<TFDataObject> matches = iterator(root); matches.hasNext(); ) {
+            if (size == column.length) column = Arrays.copyOf(column, size * 2);
+            column[size++] = matches.next().asFloat(defaultValue);
+        }
+        return Arrays.copyOf(column, size);
+    }
+
+    /**
+     * Runs the query until the first match
+     *
+     * @param root the object to run the query against
+     * @return the first match or null if nothing matches
+     */
+    public TFDataObject first(TFDataObject root) {
+        Iterator<TFDataObject> matches = iterator(root);
+        return matches.hasNext() ? matches.next() : null;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    //-------evaluation ---------
+
+    /**
+     * Adds every step reachable without consuming a key, a "**" can also match no key at all
+     */
+    private long closure(long states) {
+        long pending = states & descendantSteps;
+        while (pending != 0) {
+            int step = Long.numberOfTrailingZeros(pending);
+            pending &= pending - 1;
+            long next = 1L << (step + 1);
+            if ((states & next) == 0) {
+                states |= next;
+                if ((descendantSteps & next) != 0) pending |= next;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Gets the states after consuming a child, 0 if no step can match below it anymore
+     */
+    private long advance(long states, String key, TFDataObject child) {
+        long next = 0;
+        for (long pending = states & ~(1L << steps.length); pending != 0; pending &= pending - 1) {
+            int index = Long.numberOfTrailingZeros(pending);
+            Step step = steps[index];
+            if (step.descendant) {
+                next |= 1L << index;
+            } else if (step.key.matches(key) && (step.value == null || child.isValue() && step.value.matches(child.getValue()))) {
+                next |= 1L << (index + 1);
+            }
+        }
+        return closure(next);
+    }
+
+    private boolean isMatch(long states) {
+        return (states & (1L << steps.length)) != 0;
+    }
+
+    /**
+     * @return true if a child of an object in these states can still match a step
+     */
+    private boolean canDescend(long states) {
+        return (states & ~(1L << steps.length)) != 0;
+    }
+
+    /**
+     * Collects the keys that can match next if every open step is a literal key, null if the children have to be iterated
+     */
+    private List<String> literalKeys(long states) {
+        long open = states & ~(1L << steps.length);
+        if ((open & ~literalSteps) != 0) {
+            return null;
+        }
+        List<String> keys = new ArrayList<>(Long.bitCount(open));
+        for (long pending = open; pending != 0; pending &= pending - 1) {
+            String key = steps[Long.numberOfTrailingZeros(pending)].key.pattern;
+            if (!keys.contains(key)) keys.add(key);
+        }
+        return keys;
+    }
+
+    private final class Matches implements Iterator<TFDataObject> {
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        private TFDataObject next;
+
+        private Matches(TFDataObject root) {
+            long states = closure(1L);
+            if (isMatch(states)) {
+                next = root;
+            }
+            if (canDescend(states) && !root.isValue()) {
+                stack.push(new Frame(root, states));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                Frame frame = stack.peek();
+                TFDataObject child = frame.nextChild();
+                if (child == null) {
+                    stack.pop();
+                    continue;
+                }
+                long states = advance(frame.states, frame.currentKey, child);
+                if (states == 0) {
+                    //nothing below this child can match, the whole subtree is skipped
+                    continue;
+                }
+                if (canDescend(states) && !child.isValue()) {
+                    stack.push(new Frame(child, states));
+                }
+                if (isMatch(states)) {
+                    next = child;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public TFDataObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TFDataObject result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * An object whose children are being visited, either through all of its entries or only through the literal keys that can match
+     */
+    private final class Frame {
+        private final TFDataObject object;
+        private final long states;
+        private final List<String> keys;
+        private int keyIndex;
+        //the children under the current literal key, a key can be repeated
+        private List<TFDataObject> matches = List.of();
+        private int matchIndex;
+        //the children of an object that is iterated in full, every child of a repeated key is visited
+        private TFChildMap children;
+        private int slot;
+        private int occurrence;
+        private String currentKey;
+
+        private Frame(TFDataObject object, long states) {
+            this.object = object;
+            this.states = states;
+            this.keys = literalKeys(states);
+        }
+
+        private TFDataObject nextChild() {
+            if (keys != null) {
+                while (matchIndex == matches.size()) {
+                    if (keyIndex == keys.size()) return null;
+                    currentKey = keys.get(keyIndex++);
+                    matches = object.childrenUnder(currentKey);
+                    matchIndex = 0;
+                }
+                return matches.get(matchIndex++);
+            }
+            if (children == null) {
+                children = object.getContentMap();
+            }
+            for (; slot < children.slotLimit(); slot++, occurrence = 0) {
+                String key = children.keyAt(slot);
+                if (key != null && occurrence < children.countAt(slot)) {
+                    currentKey = key;
+                    return children.childAt(slot, occurrence++);
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Step {
+        private final Glob key;
+        private final Glob value;
+        private final boolean descendant;
+
+        private Step(Glob key, Glob value, boolean descendant) {
+            this.key = key;
+            this.value = value;
+            this.descendant = descendant;
+        }
+    }
+
+    /**
+     * Glob over a single key or value, * matches any run of characters and ? a single one
+     */
+    private static final class Glob {
+        private static final Glob ANY = new Glob("*");
+
+        private final String pattern;
+        private final boolean literal;
+        private final boolean any;
+
+        private Glob(String pattern) {
+            this.pattern = pattern;
+            this.literal = pattern.indexOf('*') < 0 && pattern.indexOf('?') < 0;
+            this.any = pattern.equals("*");
+        }
+
+        private static Glob of(String pattern) {
+            return pattern.equals("*") ? ANY : new Glob(pattern);
+        }
+
+        private boolean isLiteral() {
+            return literal;
+        }
+
+        private boolean matches(String text) {
+            if (any) return text != null;
+            if (text == null) return false;
+            if (literal) return pattern.equals(text);
+            //iterative glob matching, backtracks only to the last *
+            int p = 0;
+            int t = 0;
+            int star = -1;
+            int mark = 0;
+            while (t < text.length()) {
+                if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == text.charAt(t))) {
+                    p++;
+                    t++;
+                } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                    star = p++;
+                    mark = t;
+                } else if (star >= 0) {
+                    p = star + 1;
+                    t = ++mark;
+                } else {
+                    return false;
+                }
+            }
+            while (p < pattern.length() && pattern.charAt(p) == '*') {
+                p++;
+            }
+            return p == pattern.length();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+/*
+ * Event driven reader for the tf2 key value format, the streaming counterpart to TFDataObject.from.
+ * Walks the tokens of an input once and reports objects and key value pairs to a TFVisitor without building a tree
+ */
+public final class TFReader {
+
+    private TFReader() {
+    }
+
+    /**
+     * Reads a file and reports its content to the visitor
+     *
+     * @param path    the path to the file
+     * @param charset the charset to use if the file has no byte order mark
+     * @param visitor the visitor to notify
+     * @throws UncheckedIOException if the file could not be read
+     */
+    public static void read(Path path, Charset charset, TFVisitor visitor) {
+        try {
+            read(TFInput.open(path, charset), visitor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads text and reports its content to the visitor
+     *
+     * @param content the content to read
+     * @param visitor the visitor to notify
+     */
+    public static void read(CharSequence content, TFVisitor visitor) {
+        read(TFInput.of(content), visitor);
+    }
+
+    /**
+     * Reads an input and reports its content to the visitor
+     *
+     * @param input   the input to read
+     * @param visitor the visitor to notify
+     */
+    public static void read(TFInput input, TFVisitor visitor) {
+        read(new TFTokenizer(input), visitor);
+    }
+
+    /**
+     * Reads the remaining tokens of a tokenizer and reports them to the visitor
+     *
+     * @param tokenizer the tokenizer to read from
+     * @param visitor   the visitor to notify
+     */
+    public static void read(TFTokenizer tokenizer, TFVisitor visitor) {
+        read(tokenizer, visitor, null);
+    }
+
+    /**
+     * Reads the remaining tokens of a tokenizer and reports them to the visitor, keys and short values are canonicalized through the pool
+     *
+     * @param tokenizer the tokenizer to read from
+     * @param visitor   the visitor to notify
+     * @param pool      the pool to canonicalize strings with, or null to not pool
+     */
+    public static void read(TFTokenizer tokenizer, TFVisitor visitor, TFStringPool pool) {
+        int depth = 0;
+        String pendingKey = null;
+        while (true) {
+            switch (tokenizer.next()) {
+                case STRING:
+                    if (pendingKey == null) {
+                        pendingKey = tokenizer.text(pool);
+                    } else {
+                        visitor.keyValue(pendingKey, value(tokenizer, pool));
+                        pendingKey = null;
+                    }
+                    break;
+                case OPEN:
+                    String key = pendingKey == null ? "" : pendingKey;
+                    pendingKey = null;
+                    if (visitor.startObject(key)) {
+                        depth++;
+                    } else {
+                        tokenizer.skipObject();
+                    }
+                    break;
+                case CLOSE:
+                    //stray closing braces are ignored the same way the legacy parser did
+                    if (depth > 0) {
+                        depth--;
+                        visitor.endObject();
+                    }
+                    pendingKey = null;
+                    break;
+                case CONDITIONAL:
+                    break;
+                case EOF:
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Decodes the current token as a value, only pooling it if it is short enough to be likely repeated
+     *
+     * @param tokenizer the tokenizer positioned on the value
+     * @param pool      the pool to use, or null
+     * @return the decoded value
+     */
+    static String value(TFTokenizer tokenizer, TFStringPool pool) {
+        if (pool == null || !pool.shouldPoolValue(tokenizer.tokenEnd() - tokenizer.tokenStart())) {
+            return tokenizer.text();
+        }
+        return tokenizer.text(pool);
+    }
+}
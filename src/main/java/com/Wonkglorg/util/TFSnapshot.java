@@ -0,0 +1,348 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/*
+ * Binary cache of a parsed tree so a text file only has to be parsed again once it changes.
+ * A snapshot is a header followed by a string table and a node table:
+ *
+ *   magic, version, source size, source modified time, source hash, charset hash, body checksum, body length
+ *   string count, then per string its utf-8 length and bytes
+ *   node count, then per node in depth first order: key id, value id (-1 for objects), child count
+ *
+ * Snapshots are written and read through memory maps. The sidecar of "items_game.txt" is "items_game.txt.tfsnap".
+ * A sidecar is only used when it was written for the same charset, the other parse options only change how a file is parsed
+ * (lazily, in parallel, pooled) and build the same tree
+ */
+public final class TFSnapshot {
+
+    /**
+     * File extension appended to the source file name to get its snapshot
+     */
+    public static final String EXTENSION = ".tfsnap";
+
+    private static final int MAGIC = 0x54465350; //"TFSP"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8 + 8 + 4;
+
+    private TFSnapshot() {
+    }
+
+    /**
+     * Loads a file through its sidecar snapshot. The snapshot is used if it was written for the same charset and the size and
+     * modification time of the source match, or if they differ but the content hash is still the same. Otherwise the source is
+     * parsed and the snapshot regenerated
+     *
+     * @param source  the text file
+     * @param charset the charset to use if the file has no byte order mark
+     * @param options how the file should be parsed if the snapshot can not be used
+     * @return the parsed tree
+     * @throws UncheckedIOException if the source could not be read
+     */
+    public static TFDataObject load(Path source, Charset charset, TFParseOptions options) {
+        Path snapshot = sidecar(source);
+        long settings = settings(charset);
+        try {
+            long size = Files.size(source);
+            long modified = Files.getLastModifiedTime(source).toMillis();
+            Long sourceHash = null;
+            if (Files.isRegularFile(snapshot)) {
+                Header header = readHeader(snapshot);
+                if (header != null && header.settings() == settings && header.sourceSize() == size) {
+                    if (header.sourceModified() == modified) {
+                        TFDataObject cached = read(snapshot, options.parsePool());
+                        if (cached != null) return cached;
+                    } else {
+                        sourceHash = hash(source);
+                        if (header.sourceHash() == sourceHash) {
+                            TFDataObject cached = read(snapshot, options.parsePool());
+                            if (cached != null) return cached;
+                        }
+                    }
+                }
+            }
+            TFDataObject parsed = TFDataObject.from(TFInput.open(source, charset), options);
+            try {
+                write(parsed, snapshot, size, modified, sourceHash == null ? hash(source) : sourceHash, settings);
+            } catch (IOException e) {
+                //the snapshot is only a cache, failing to write it must not fail the load
+            }
+            return parsed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param source the text file
+     * @return the path of the snapshot belonging to the file
+     */
+    public static Path sidecar(Path source) {
+        return source.resolveSibling(source.getFileName().toString() + EXTENSION);
+    }
+
+    /**
+     * Writes a snapshot of a tree that is not tied to a source file
+     *
+     * @param object   the tree to write
+     * @param snapshot where to write the snapshot to
+     * @throws IOException if the snapshot could not be written
+     */
+    public static void write(TFDataObject object, Path snapshot) throws IOException {
+        write(object, snapshot, -1, -1, 0, 0);
+    }
+
+    /**
+     * Reads a snapshot
+     *
+     * @param snapshot the snapshot to read
+     * @return the tree or null if the file is not a valid snapshot of this version or its checksum does not match
+     * @throws IOException if the snapshot could not be read
+     */
+    public static TFDataObject read(Path snapshot) throws IOException {
+        return read(snapshot, null);
+    }
+
+    //-------writing ---------
+
+    private static void write(TFDataObject object, Path snapshot, long sourceSize, long sourceModified, long sourceHash, long settings) throws IOException {
+        NodeTable table = new NodeTable();
+        table.add(object.getKey(), object);
+        List<byte[]> strings = table.strings;
+        int[] nodes = table.nodes;
+        int nodeCount = table.size;
+
+        long bodyLength = 4 + 4 + 4L * 3 * nodeCount;
+        for (byte[] string : strings) {
+            bodyLength += 4 + string.length;
+        }
+        if (HEADER_SIZE + bodyLength > Integer.MAX_VALUE) {
+            throw new IOException("Tree is too large for a snapshot");
+        }
+
+        //a temp file of its own in the same directory, concurrent writers of the same snapshot never write into each other's file
+        Path directory = snapshot.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+        try {
+            writeBody(temp, strings, nodes, nodeCount, bodyLength, sourceSize, sourceModified, sourceHash, settings);
+            try {
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeBody(Path temp, List<byte[]> strings, int[] nodes, int nodeCount, long bodyLength,
+                                  long sourceSize, long sourceModified, long sourceHash, long settings) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + bodyLength);
+            buffer.position(HEADER_SIZE);
+            buffer.putInt(strings.size());
+            for (byte[] string : strings) {
+                buffer.putInt(string.length);
+                buffer.put(string);
+            }
+            buffer.putInt(nodeCount);
+            for (int i = 0; i < 3 * nodeCount; i++) {
+                buffer.putInt(nodes[i]);
+            }
+
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.duplicate().position(HEADER_SIZE).limit(HEADER_SIZE + (int) bodyLength));
+
+            buffer.position(0);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(sourceSize);
+            buffer.putLong(sourceModified);
+            buffer.putLong(sourceHash);
+            buffer.putLong(settings);
+            buffer.putLong(checksum.getValue());
+            buffer.putInt((int) bodyLength);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Flattens a tree into the string and node table in depth first order
+     */
+    private static final class NodeTable {
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+        private int[] nodes = new int[3 * 64];
+        private int size;
+
+        private void add(String key, TFDataObject node) {
+            if (3 * (size + 1) > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+            }
+            int offset = 3 * size++;
+            nodes[offset] = stringId(key);
+            if (node.isValue()) {
+                nodes[offset + 1] = stringId(node.getValue());
+                nodes[offset + 2] = 0;
+                return;
+            }
+            TFChildMap children = node.getContentMap();
+            nodes[offset + 1] = -1;
+            if (!node.hasDuplicates()) {
+                nodes[offset + 2] = children.size();
+                for (var entry : children.entrySet()) {
+                    add(entry.getKey(), entry.getValue());
+                }
+                return;
+            }
+            //repeated keys are written once per child in front of the last one, reading adds them back in the same order
+            nodes[offset + 2] = node.getChildMap().childCount();
+            for (String childKey : children.keySet()) {
+                for (TFDataObject child : children.getAll(childKey)) {
+                    add(childKey, child);
+                }
+            }
+        }
+
+        private int stringId(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                id = strings.size();
+                strings.add(value.getBytes(StandardCharsets.UTF_8));
+                stringIds.put(value, id);
+            }
+            return id;
+        }
+    }
+
+    //-------reading ---------
+
+    private static Header readHeader(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                //keep reading until the header is complete
+            }
+            buffer.flip();
+            return parseHeader(buffer, channel.size());
+        }
+    }
+
+    private static Header parseHeader(ByteBuffer buffer, long fileSize) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        Header header = new Header(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt());
+        if (HEADER_SIZE + (long) header.bodyLength() != fileSize) {
+            return null;
+        }
+        return header;
+    }
+
+    private static TFDataObject read(Path snapshot, TFStringPool sharedPool) throws IOException {
+        TFStringPool pool = sharedPool == null ? null : sharedPool.forParse(false);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Header header = parseHeader(buffer, size);
+            if (header == null) {
+                return null;
+            }
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.duplicate().position(HEADER_SIZE));
+            if (checksum.getValue() != header.checksum()) {
+                return null;
+            }
+
+            buffer.position(HEADER_SIZE);
+            String[] strings = new String[buffer.getInt()];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getInt();
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(scratch, 0, length);
+                String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                strings[i] = pool == null ? value : pool.intern(value);
+            }
+            int nodeCount = buffer.getInt();
+            if (nodeCount <= 0) {
+                return null;
+            }
+            int rootKey = buffer.getInt();
+            buffer.getInt();
+            int rootChildren = buffer.getInt();
+            TFDataObject root = new TFDataObject("", rootKey < 0 ? null : strings[rootKey], (String) null);
+            String rootPath = root.getKey() == null ? "" : root.getKey();
+            readChildren(buffer, strings, root, rootPath, rootChildren, pool);
+            return root;
+        } finally {
+            if (pool != null) pool.release();
+        }
+    }
+
+    private static void readChildren(ByteBuffer buffer, String[] strings, TFDataObject parent, String childPath, int count, TFStringPool pool) {
+        TFChildMap target = parent.getChildMap();
+        for (int i = 0; i < count; i++) {
+            int keyId = buffer.getInt();
+            int valueId = buffer.getInt();
+            int children = buffer.getInt();
+            String key = keyId < 0 ? "" : strings[keyId];
+            if (valueId >= 0) {
+                target.add(key, new TFDataObject(childPath, key, strings[valueId]));
+            } else {
+                TFDataObject child = new TFDataObject(childPath, key, (String) null);
+                target.add(key, child);
+                String nestedPath = childPath.isEmpty() ? key : TFTreeBuilder.childPath(childPath, key, pool);
+                readChildren(buffer, strings, child, nestedPath, children, pool);
+            }
+        }
+    }
+
+    private static long hash(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            CRC32C checksum = new CRC32C();
+            checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return checksum.getValue();
+        }
+    }
+
+    /**
+     * Identifies the settings a tree was parsed with, a snapshot of a file decoded with another charset holds different strings
+     */
+    private static long settings(Charset charset) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(charset.name().getBytes(StandardCharsets.US_ASCII));
+        return checksum.getValue();
+    }
+
+    private record Header(long sourceSize, long sourceModified, long sourceHash, long settings, long checksum, int bodyLength) {
+    }
+}
@@ -0,0 +1,346 @@
+package com.Wonkglorg.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Canonicalizes the keys, short values and paths created while parsing so repeated strings such as "attribute_class" or "value"
+ * are only held once. Tokens are looked up straight from the input, a String is only decoded the first time a token is seen.
+ * A pool created with the constructor is not thread safe and holds its strings strongly, it belongs to one parse at a time,
+ * see TFParseOptions.pooled for a pool per parse. A pool from shared() may be used by any number of parses at once to deduplicate
+ * across files, it only holds its strings weakly so they are dropped together with the last tree using them. Every parse looks up
+ * through its own unsynchronized pool in front of the shared one, only strings that parse has not seen yet reach the shared pool
+ */
+public final class TFStringPool {
+
+    /**
+     * Values longer than this are not pooled by default, long values such as descriptions rarely repeat
+     */
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 64;
+
+    private final int maxValueLength;
+    //set for the pool of one parse or task, strings it has not seen yet are looked up there
+    private final TFStringPool parent;
+    //set for pools created by shared(), the strings are only weakly held
+    private final WeakStore store;
+    private String[] table;
+    private int size;
+
+    private long lookups;
+    private long hits;
+    private long bytesSaved;
+
+    /**
+     * Creates a new pool using {@link #DEFAULT_MAX_VALUE_LENGTH}
+     */
+    public TFStringPool() {
+        this(DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Creates a new pool
+     *
+     * @param maxValueLength the longest value that is pooled, keys and paths are always pooled
+     */
+    public TFStringPool(int maxValueLength) {
+        this(maxValueLength, null, null);
+    }
+
+    private TFStringPool(int maxValueLength, TFStringPool parent, WeakStore store) {
+        this.maxValueLength = maxValueLength;
+        this.parent = parent;
+        this.store = store;
+        table = store == null ? new String[1024] : null;
+    }
+
+    /**
+     * Creates a thread safe pool using {@link #DEFAULT_MAX_VALUE_LENGTH} that can be passed to any number of parses at once
+     *
+     * @return the new pool
+     */
+    public static TFStringPool shared() {
+        return shared(DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Creates a thread safe pool that can be passed to any number of parses at once, strings are only held while a tree uses them
+     *
+     * @param maxValueLength the longest value that is pooled, keys and paths are always pooled
+     * @return the new pool
+     */
+    public static TFStringPool shared(int maxValueLength) {
+        return new TFStringPool(maxValueLength, null, new WeakStore());
+    }
+
+    /**
+     * Gets the pool one parse or parallel task looks up through, a pool in front of this one if it is shared or used by several tasks
+     *
+     * @param concurrent true if other tasks of the same parse use this pool at the same time
+     * @return the pool to use, {@link #release()} it once the parse is done
+     */
+    TFStringPool forParse(boolean concurrent) {
+        return store != null || concurrent ? new TFStringPool(maxValueLength, this, null) : this;
+    }
+
+    /**
+     * Adds the statistics of a pool from {@link #forParse(boolean)} to the pool it was created from
+     */
+    void release() {
+        if (parent == null) {
+            return;
+        }
+        //misses were counted by the parent when they were looked up there
+        if (parent.store != null) {
+            parent.store.count(hits, hits, bytesSaved);
+        } else {
+            synchronized (parent) {
+                parent.lookups += hits;
+                parent.hits += hits;
+                parent.bytesSaved += bytesSaved;
+            }
+        }
+        lookups = 0;
+        hits = 0;
+        bytesSaved = 0;
+    }
+
+    /**
+     * Gets the canonical instance of a string, adding it to the pool if it is not present yet
+     *
+     * @param value the string to look up
+     * @return the pooled instance equal to value
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (store != null) {
+            return store.intern(value);
+        }
+        lookups++;
+        int hash = value.hashCode();
+        int mask = table.length - 1;
+        int index = spread(hash) & mask;
+        for (String candidate; (candidate = table[index]) != null; index = (index + 1) & mask) {
+            if (candidate.hashCode() == hash && candidate.equals(value)) {
+                hit(candidate);
+                return candidate;
+            }
+        }
+        String pooled = miss(value);
+        insert(index, pooled);
+        return pooled;
+    }
+
+    /**
+     * Gets the canonical instance of a region of the input without decoding it if it is already pooled
+     *
+     * @param input the input to read from
+     * @param start the start of the region
+     * @param end   the end of the region
+     * @return the pooled instance equal to the decoded region
+     */
+    public String intern(TFInput input, int start, int end) {
+        if (store != null) {
+            return store.intern(input.decode(start, end));
+        }
+        boolean charUnits = input.hasCharUnits();
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c >= 0x80 && !charUnits) {
+                //multi byte characters have to be decoded before they can be compared
+                return intern(input.decode(start, end));
+            }
+            hash = 31 * hash + c;
+        }
+        lookups++;
+        int length = end - start;
+        int mask = table.length - 1;
+        int index = spread(hash) & mask;
+        for (String candidate; (candidate = table[index]) != null; index = (index + 1) & mask) {
+            if (candidate.hashCode() == hash && candidate.length() == length && matches(candidate, input, start)) {
+                hit(candidate);
+                return candidate;
+            }
+        }
+        String value = miss(input.decode(start, end));
+        insert(index, value);
+        return value;
+    }
+
+    /**
+     * Checks if a value of the given length should be pooled
+     *
+     * @param length the length of the value
+     * @return true if the value should be pooled
+     */
+    public boolean shouldPoolValue(int length) {
+        return length <= maxValueLength;
+    }
+
+    /**
+     * Gets the statistics of this pool, lookups of a parse are added once the parse is done
+     *
+     * @return the amount of lookups, hits, distinct strings and estimated bytes saved so far
+     */
+    public Statistics getStatistics() {
+        if (store != null) {
+            return store.statistics();
+        }
+        synchronized (this) {
+            return new Statistics(lookups, hits, size, bytesSaved);
+        }
+    }
+
+    private static boolean matches(String candidate, TFInput input, int start) {
+        for (int i = 0; i < candidate.length(); i++) {
+            if (candidate.charAt(i) != input.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void hit(String candidate) {
+        hits++;
+        bytesSaved += estimateSize(candidate);
+    }
+
+    /**
+     * Looks up a string this pool has not seen yet, the parent is only locked if it is not shared
+     */
+    private String miss(String value) {
+        if (parent == null) {
+            return value;
+        }
+        if (parent.store != null) {
+            return parent.store.intern(value);
+        }
+        synchronized (parent) {
+            return parent.intern(value);
+        }
+    }
+
+    private void insert(int index, String value) {
+        table[index] = value;
+        if (++size * 2 > table.length) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        String[] old = table;
+        table = new String[old.length * 2];
+        int mask = table.length - 1;
+        for (String value : old) {
+            if (value == null) continue;
+            int index = spread(value.hashCode()) & mask;
+            while (table[index] != null) {
+                index = (index + 1) & mask;
+            }
+            table[index] = value;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Estimates the retained size of a String with compressed oops, 24 bytes for the String itself and the aligned backing array
+     */
+    private static long estimateSize(String value) {
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 0x100;
+        }
+        long arrayBytes = 16L + (latin1 ? value.length() : value.length() * 2L);
+        return 24 + ((arrayBytes + 7) & ~7L);
+    }
+
+    /**
+     * Weakly held strings of a shared pool, entries of collected strings are removed on the next lookup
+     */
+    private static final class WeakStore {
+        private final ConcurrentHashMap<Entry, Entry> entries = new ConcurrentHashMap<>();
+        private final ReferenceQueue<String> collected = new ReferenceQueue<>();
+        private final LongAdder lookups = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder bytesSaved = new LongAdder();
+
+        String intern(String value) {
+            for (Object entry; (entry = collected.poll()) != null; ) {
+                entries.remove(entry, entry);
+            }
+            lookups.increment();
+            Entry candidate = new Entry(value, collected);
+            while (true) {
+                Entry existing = entries.putIfAbsent(candidate, candidate);
+                if (existing == null) {
+                    return value;
+                }
+                String pooled = existing.get();
+                if (pooled != null) {
+                    hits.increment();
+                    bytesSaved.add(estimateSize(pooled));
+                    return pooled;
+                }
+                //collected but not polled yet
+                entries.remove(existing, existing);
+            }
+        }
+
+        void count(long lookups, long hits, long bytesSaved) {
+            this.lookups.add(lookups);
+            this.hits.add(hits);
+            this.bytesSaved.add(bytesSaved);
+        }
+
+        Statistics statistics() {
+            return new Statistics(lookups.sum(), hits.sum(), entries.size(), bytesSaved.sum());
+        }
+    }
+
+    /**
+     * A weakly held string, two entries are equal while both strings are reachable and equal
+     */
+    private static final class Entry extends WeakReference<String> {
+        private final int hash;
+
+        Entry(String value, ReferenceQueue<String> queue) {
+            super(value, queue);
+            hash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Entry) || ((Entry) other).hash != hash) {
+                return false;
+            }
+            String value = get();
+            return value != null && value.equals(((Entry) other).get());
+        }
+    }
+
+    /**
+     * Usage statistics of a pool
+     *
+     * @param lookups    how many strings were looked up
+     * @param hits       how many lookups returned an already pooled instance
+     * @param distinct   how many distinct strings are pooled
+     * @param bytesSaved the estimated amount of heap that would have been taken by the duplicates
+     */
+    public record Statistics(long lookups, long hits, int distinct, long bytesSaved) {
+    }
+}
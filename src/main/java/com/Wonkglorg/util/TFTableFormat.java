@@ -0,0 +1,89 @@
+package com.Wonkglorg.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Row layout of a key value table such as "| %path | %key | %value |", compiled once into the literal text between the placeholders
+ * and the columns in the order they appear so rendering a row only appends, nothing is searched or replaced per row
+ */
+public final class TFTableFormat {
+
+    static final int PATH = 0;
+    static final int KEY = 1;
+    static final int VALUE = 2;
+
+    private static final String[] PLACEHOLDERS = {"%path", "%key", "%value"};
+
+    /**
+     * The layout {@link TFDataVisualizer#printFormatted()} uses
+     */
+    public static final TFTableFormat DEFAULT = compile("| %path | %key | %value |");
+
+    //literals[i] is written before columns[i], the last literal after the last column
+    private final String[] literals;
+    private final int[] columns;
+
+    private TFTableFormat(String[] literals, int[] columns) {
+        this.literals = literals;
+        this.columns = columns;
+    }
+
+    /**
+     * Compiles a format, %path, %key and %value are replaced by the padded columns, every other character is written as it is
+     *
+     * @param format the format of a row
+     * @return the compiled format
+     * @throws IllegalArgumentException if the format is null
+     */
+    public static TFTableFormat compile(String format) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format can not be null");
+        }
+        List<String> literals = new ArrayList<>();
+        List<Integer> columns = new ArrayList<>();
+        int literalStart = 0;
+        int index = format.indexOf('%');
+        while (index >= 0) {
+            int column = placeholderAt(format, index);
+            if (column < 0) {
+                index = format.indexOf('%', index + 1);
+                continue;
+            }
+            literals.add(format.substring(literalStart, index));
+            columns.add(column);
+            literalStart = index + PLACEHOLDERS[column].length();
+            index = format.indexOf('%', literalStart);
+        }
+        literals.add(format.substring(literalStart));
+        return new TFTableFormat(literals.toArray(new String[0]), columns.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static int placeholderAt(String format, int index) {
+        for (int column = 0; column < PLACEHOLDERS.length; column++) {
+            if (format.startsWith(PLACEHOLDERS[column], index)) return column;
+        }
+        return -1;
+    }
+
+    /**
+     * @return how many placeholders the format has
+     */
+    int columnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @return the column of a placeholder, see {@link #PATH}, {@link #KEY} and {@link #VALUE}
+     */
+    int column(int placeholder) {
+        return columns[placeholder];
+    }
+
+    /**
+     * @return the text written before a placeholder, or after the last one for placeholder == columnCount()
+     */
+    String literal(int placeholder) {
+        return literals[placeholder];
+    }
+}
@@ -0,0 +1,216 @@
+package com.Wonkglorg.util;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * Writes the key values below an object as a table to an Appendable, for example into a diff report.
+ * Widths are either given or fitted to the written rows while they are collected, so the rows are walked once.
+ * With every width given the rows are written while the tree is walked and never held in memory.
+ * Cells are padded and cut by appending ranges and spaces, nothing is formatted or replaced per row.
+ * Offset and limit select a page of the rows, the walk stops after the last row of the page
+ */
+public final class TFTableWriter {
+
+    private static final String SPACES = " ".repeat(64);
+    //every column is two characters wider than its content, as the visualizer has always printed it
+    private static final int PADDING = 2;
+
+    private final Appendable out;
+    private final TFTableFormat format;
+    private final int[] widths = new int[3];
+    private final int[] rowWidths = new int[3];
+    private long offset;
+    private long limit = -1;
+    private String lineSeparator = "\n";
+
+    /**
+     * Creates a new writer fitting every column to its content
+     *
+     * @param out    where the table is written to, should be buffered if it writes to a file or stream
+     * @param format the layout of a row
+     */
+    public TFTableWriter(Appendable out, TFTableFormat format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * Creates a writer that writes through a buffer to a channel, the buffer is flushed after every table
+     *
+     * @param channel the channel to write to, it is not closed
+     * @param charset the charset to encode the table with
+     * @param format  the layout of a row
+     * @return the new writer
+     */
+    public static TFTableWriter of(WritableByteChannel channel, Charset charset, TFTableFormat format) {
+        return new TFTableWriter(new BufferedWriter(Channels.newWriter(channel, charset)), format);
+    }
+
+    /**
+     * Sets the width of every column without its padding, longer cells are cut
+     *
+     * @param pathWidth  the width of the path column, 0 to fit it to the written rows
+     * @param keyWidth   the width of the key column, 0 to fit it to the written rows
+     * @param valueWidth the width of the value column, 0 to fit it to the written rows
+     * @return this writer
+     */
+    public TFTableWriter widths(int pathWidth, int keyWidth, int valueWidth) {
+        widths[TFTableFormat.PATH] = pathWidth;
+        widths[TFTableFormat.KEY] = keyWidth;
+        widths[TFTableFormat.VALUE] = valueWidth;
+        return this;
+    }
+
+    /**
+     * Sets what ends every line, "\n" unless set
+     *
+     * @param lineSeparator the line separator, for example {@link System#lineSeparator()} for the console
+     * @return this writer
+     */
+    public TFTableWriter lineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+        return this;
+    }
+
+    /**
+     * Sets how many rows are skipped before the first written one
+     *
+     * @param offset the rows to skip
+     * @return this writer
+     */
+    public TFTableWriter offset(long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Sets how many rows are written at most
+     *
+     * @param limit the highest amount of rows, -1 for no limit
+     * @return this writer
+     */
+    public TFTableWriter limit(long limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Selects one page of the rows, shorthand for an offset of index * rows and a limit of rows
+     *
+     * @param index the page starting at 0
+     * @param rows  the rows of a page
+     * @return this writer
+     */
+    public TFTableWriter page(int index, int rows) {
+        return offset((long) index * rows).limit(rows);
+    }
+
+    /**
+     * Writes a header and a row for every key value below an object, the path column shows the key of the object followed by the path
+     *
+     * @param object     the object to write the values of
+     * @param searchPath the path the rows have to start with, if null all key values are written, see {@link TFDataObject#streamKeyValues(String, int)}
+     * @param depth      how many object levels below the object are written, -1 for all
+     * @return how many rows were written
+     * @throws IOException if the underlying Appendable fails
+     */
+    public long write(TFDataObject object, String searchPath, int depth) throws IOException {
+        String pathPrefix = object.getKey() + ".";
+        Iterator<TFDataObject.DataObjectEntry> entries = object.keyValueIterator(searchPath, depth);
+        for (long skipped = 0; skipped < offset && entries.hasNext(); skipped++) {
+            entries.next();
+        }
+        long count = 0;
+        System.arraycopy(widths, 0, rowWidths, 0, widths.length);
+        if (widths[TFTableFormat.PATH] > 0 && widths[TFTableFormat.KEY] > 0 && widths[TFTableFormat.VALUE] > 0) {
+            header();
+            for (; (limit < 0 || count < limit) && entries.hasNext(); count++) {
+                TFDataObject.DataObjectEntry entry = entries.next();
+                row(pathPrefix, entry.path(), entry.key(), entry.value());
+            }
+        } else {
+            //the widths have to be known before the first row, the rows of the page are measured while they are collected
+            List<TFDataObject.DataObjectEntry> rows = new ArrayList<>();
+            int pathWidth = 0;
+            int keyWidth = 0;
+            int valueWidth = 0;
+            for (; (limit < 0 || count < limit) && entries.hasNext(); count++) {
+                TFDataObject.DataObjectEntry entry = entries.next();
+                rows.add(entry);
+                pathWidth = Math.max(pathWidth, pathPrefix.length() + entry.path().length());
+                keyWidth = Math.max(keyWidth, entry.key().length());
+                valueWidth = Math.max(valueWidth, entry.value().length());
+            }
+            if (rowWidths[TFTableFormat.PATH] == 0) rowWidths[TFTableFormat.PATH] = pathWidth;
+            if (rowWidths[TFTableFormat.KEY] == 0) rowWidths[TFTableFormat.KEY] = keyWidth;
+            if (rowWidths[TFTableFormat.VALUE] == 0) rowWidths[TFTableFormat.VALUE] = valueWidth;
+            header();
+            for (TFDataObject.DataObjectEntry entry : rows) {
+                row(pathPrefix, entry.path(), entry.key(), entry.value());
+            }
+        }
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+        return count;
+    }
+
+    private void header() throws IOException {
+        for (int i = 0; i < rowWidths.length; i++) {
+            rowWidths[i] += PADDING;
+        }
+        row("", "Path", "Key", "Value");
+        int width = rowWidths[TFTableFormat.PATH] + rowWidths[TFTableFormat.KEY] + rowWidths[TFTableFormat.VALUE] + 9;
+        for (int i = 0; i < width; i++) {
+            out.append('_');
+        }
+        out.append(lineSeparator);
+    }
+
+    private void row(String pathPrefix, String path, String key, String value) throws IOException {
+        int columns = format.columnCount();
+        for (int i = 0; i < columns; i++) {
+            out.append(format.literal(i));
+            int column = format.column(i);
+            if (column == TFTableFormat.PATH) {
+                cell(pathPrefix, path, rowWidths[column]);
+            } else {
+                cell("", column == TFTableFormat.KEY ? key : value, rowWidths[column]);
+            }
+        }
+        out.append(format.literal(columns)).append(lineSeparator);
+    }
+
+    /**
+     * Appends two strings as one cell, padded with spaces or cut to the width
+     */
+    private void cell(String first, String second, int width) throws IOException {
+        int length = first.length() + second.length();
+        if (length < width) {
+            out.append(first).append(second);
+            pad(out, width - length);
+            return;
+        }
+        int fromFirst = Math.min(first.length(), width);
+        out.append(first, 0, fromFirst).append(second, 0, width - fromFirst);
+    }
+
+    /**
+     * Appends a number of spaces
+     */
+    static void pad(Appendable out, int count) throws IOException {
+        while (count > 0) {
+            int chunk = Math.min(count, SPACES.length());
+            out.append(SPACES, 0, chunk);
+            count -= chunk;
+        }
+    }
+}
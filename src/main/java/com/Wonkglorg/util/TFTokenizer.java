@@ -0,0 +1,370 @@
+package com.Wonkglorg.util;
+
+import java.util.Arrays;
+
+/*
+ * Single pass tokenizer for the tf2 key value format.
+ * Works directly on the code units of the input, lines are never copied, no regex is involved and tokens are only decoded when their text is requested.
+ * Supports quoted and unquoted strings, braces, // comments, [$CONDITIONAL] blocks and backslash escapes inside quoted strings,
+ * a backslash before a quote that has to close the string is kept as part of the string
+ */
+public final class TFTokenizer {
+
+    /**
+     * The kind of token the tokenizer is currently positioned on
+     */
+    public enum Token {
+        /**
+         * A quoted or unquoted string, either a key or a value
+         */
+        STRING,
+        /**
+         * An opening brace
+         */
+        OPEN,
+        /**
+         * A closing brace
+         */
+        CLOSE,
+        /**
+         * A platform conditional such as [$WIN32], usually ignored
+         */
+        CONDITIONAL,
+        /**
+         * End of the input
+         */
+        EOF
+    }
+
+    private final TFInput input;
+    private final int end;
+    private int position;
+
+    private Token token;
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean quoted;
+    private boolean escaped;
+
+    //unescaped quotes of the line scanned last, found by scanning forward once from lineStart until lineEnd
+    private int[] lineQuotes = new int[8];
+    private int lineQuoteCount;
+    private int lineStart = -1;
+    private int lineEnd = -1;
+
+    /**
+     * Creates a new tokenizer over the whole input
+     *
+     * @param input the content to tokenize
+     */
+    public TFTokenizer(CharSequence input) {
+        this(TFInput.of(input));
+    }
+
+    /**
+     * Creates a new tokenizer over the whole input
+     *
+     * @param input the content to tokenize
+     */
+    public TFTokenizer(TFInput input) {
+        this(input, 0, input.length());
+    }
+
+    /**
+     * Creates a new tokenizer over a region of the input
+     *
+     * @param input the content to tokenize
+     * @param start the index of the first character to read
+     * @param end   the index after the last character to read
+     */
+    public TFTokenizer(TFInput input, int start, int end) {
+        if (start < 0 || end > input.length() || start > end) {
+            throw new IndexOutOfBoundsException("Invalid region " + start + " - " + end + " for length " + input.length());
+        }
+        this.input = input;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * Advances to the next token
+     *
+     * @return the type of the token read
+     */
+    public Token next() {
+        skipWhitespaceAndComments();
+        quoted = false;
+        escaped = false;
+        if (position >= end) {
+            tokenStart = tokenEnd = end;
+            return token = Token.EOF;
+        }
+        char c = input.charAt(position);
+        switch (c) {
+            case '{':
+                tokenStart = position;
+                tokenEnd = ++position;
+                return token = Token.OPEN;
+            case '}':
+                tokenStart = position;
+                tokenEnd = ++position;
+                return token = Token.CLOSE;
+            case '"':
+                readQuoted();
+                return token = Token.STRING;
+            case '[':
+                readConditional();
+                return token = Token.CONDITIONAL;
+            default:
+                readUnquoted();
+                return token = Token.STRING;
+        }
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (position < end) {
+            char c = input.charAt(position);
+            if (c <= ' ' || c == '\uFEFF') {
+                position++;
+            } else if (c == '/' && position + 1 < end && input.charAt(position + 1) == '/') {
+                position += 2;
+                while (position < end && input.charAt(position) != '\n') {
+                    position++;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void readQuoted() {
+        quoted = true;
+        tokenStart = ++position;
+        while (position < end) {
+            char c = input.charAt(position);
+            if (c == '"') {
+                tokenEnd = position++;
+                return;
+            }
+            if (c == '\\' && position + 1 < end) {
+                if (input.charAt(position + 1) == '"' && !closingQuoteFollows(position + 2)) {
+                    //nothing left on the line closes the string, the backslash ends a windows path like "C:\dir\" and the quote closes it
+                    tokenEnd = position + 1;
+                    position += 2;
+                    return;
+                }
+                escaped = true;
+                position += 2;
+                continue;
+            }
+            position++;
+        }
+        //unterminated string, everything until the end belongs to it
+        tokenEnd = end;
+    }
+
+    /**
+     * Checks if the string is still closed later on the line, an odd number of unescaped quotes follow then.
+     * An even number belongs to further strings on the line as in "C:\dir\" "next", the \" before them ends the string.
+     * The line is only scanned once, later escaped quotes on it count the quotes recorded behind them
+     */
+    private boolean closingQuoteFollows(int from) {
+        //the scan pairs backslashes from where it started, if the quote before from was counted it paired them differently
+        if (from < lineStart || from > lineEnd || isLineQuote(from - 1)) {
+            scanLine(from);
+        }
+        int low = 0;
+        int high = lineQuoteCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lineQuotes[middle] < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return ((lineQuoteCount - low) & 1) == 1;
+    }
+
+    private boolean isLineQuote(int index) {
+        int found = Arrays.binarySearch(lineQuotes, 0, lineQuoteCount, index);
+        return found >= 0;
+    }
+
+    /**
+     * Records the unescaped quotes until the end of the line or a // comment after whitespace outside of quotes
+     */
+    private void scanLine(int from) {
+        lineStart = from;
+        lineQuoteCount = 0;
+        int i = from;
+        for (; i < end; i++) {
+            char c = input.charAt(i);
+            if (c == '\n') break;
+            if (c == '\\') {
+                //the escaped character can not be a closing quote
+                i++;
+            } else if (c == '"') {
+                if (lineQuoteCount == lineQuotes.length) lineQuotes = Arrays.copyOf(lineQuotes, lineQuoteCount * 2);
+                lineQuotes[lineQuoteCount++] = i;
+            } else if (c == '/' && (lineQuoteCount & 1) == 0 && i + 1 < end && input.charAt(i + 1) == '/'
+                    && (i == from || input.charAt(i - 1) <= ' ')) {
+                //quotes in a trailing comment do not close anything
+                break;
+            }
+        }
+        lineEnd = Math.min(i, end);
+    }
+
+    private void readConditional() {
+        tokenStart = position;
+        while (position < end && input.charAt(position) != ']' && input.charAt(position) != '\n') {
+            position++;
+        }
+        if (position < end && input.charAt(position) == ']') {
+            position++;
+        }
+        tokenEnd = position;
+    }
+
+    private void readUnquoted() {
+        tokenStart = position;
+        while (position < end) {
+            char c = input.charAt(position);
+            if (c <= ' ' || c == '"' || c == '{' || c == '}') {
+                break;
+            }
+            position++;
+        }
+        tokenEnd = position;
+    }
+
+    /**
+     * Continues reading from another index, used to read tokens again whose position was recorded earlier
+     *
+     * @param position the index to continue from, within the region of the tokenizer
+     */
+    void reset(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Skips the rest of the object the tokenizer is currently in, the tokenizer has to be positioned after an opening brace
+     *
+     * @return the index of the matching closing brace or the end of the input if it is missing
+     */
+    public int skipObject() {
+        int depth = 1;
+        while (true) {
+            Token next = next();
+            if (next == Token.EOF) {
+                return end;
+            }
+            if (next == Token.OPEN) {
+                depth++;
+            } else if (next == Token.CLOSE && --depth == 0) {
+                return tokenStart;
+            }
+        }
+    }
+
+    /**
+     * @return the decoded text of the current token with escape sequences resolved
+     */
+    public String text() {
+        String text = input.decode(tokenStart, tokenEnd);
+        if (!escaped) {
+            return text;
+        }
+        return unescape(text, 0, text.length());
+    }
+
+    /**
+     * Decodes the current token through a pool, if the token was seen before the pooled instance is returned without decoding it again
+     *
+     * @param pool the pool to use, or null to always decode
+     * @return the decoded text of the current token with escape sequences resolved
+     */
+    public String text(TFStringPool pool) {
+        if (pool == null) {
+            return text();
+        }
+        if (escaped) {
+            return pool.intern(text());
+        }
+        return pool.intern(input, tokenStart, tokenEnd);
+    }
+
+    /**
+     * Resolves the escape sequences \n \t \\ and \" of a region, any other backslash is kept as is so windows paths stay intact.
+     * A \" is only an escape if the string is still closed later on the same line, otherwise it ends the string and the backslash is kept
+     *
+     * @param input the input to read from
+     * @param start the start of the region
+     * @param end   the end of the region
+     * @return the unescaped string
+     */
+    static String unescape(CharSequence input, int start, int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                char escapedChar = input.charAt(i + 1);
+                switch (escapedChar) {
+                    case 'n':
+                        builder.append('\n');
+                        i++;
+                        continue;
+                    case 't':
+                        builder.append('\t');
+                        i++;
+                        continue;
+                    case '\\':
+                    case '"':
+                        builder.append(escapedChar);
+                        i++;
+                        continue;
+                    default:
+                        break;
+                }
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the current token
+     */
+    public Token token() {
+        return token;
+    }
+
+    /**
+     * @return the index of the first character of the current token, excluding quotes
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return the index after the last character of the current token, excluding quotes
+     */
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * @return true if the current token was enclosed in quotes
+     */
+    public boolean isQuoted() {
+        return quoted;
+    }
+
+    /**
+     * @return the index the tokenizer will continue reading from
+     */
+    public int position() {
+        return position;
+    }
+}
@@ -0,0 +1,293 @@
+package com.Wonkglorg.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/*
+ * Lazy depth first walk below an object with an explicit stack of child iterators instead of recursion, backs the key value and path streams.
+ * Children are visited in the order of the content map, every child of a repeated key included, and nothing is visited before the next element is requested.
+ * Objects are skipped without being walked as soon as no path below them can start with the prefix or they lie deeper than the depth limit.
+ * Splitting hands the first half of the remaining children of the shallowest object, and everything in progress below it, to a new traversal
+ */
+abstract class TFTraversal<T> implements Spliterator<T> {
+
+    private static final int NONE = 0;
+    //some paths below the object can start with the prefix, it has to be walked
+    private static final int SOME = 1;
+    //every path below the object starts with the prefix
+    private static final int ALL = 2;
+
+    final String prefix;
+    //the objects being walked, the innermost first
+    private final Deque<Frame> stack;
+    private long estimate;
+
+    private TFTraversal(String prefix, Deque<Frame> stack, long estimate) {
+        this.prefix = prefix;
+        this.stack = stack;
+        this.estimate = estimate;
+    }
+
+    /**
+     * Walks the values below an object, see {@link TFDataObject#streamKeyValues(String, int)}
+     */
+    static Spliterator<TFDataObject.DataObjectEntry> keyValues(TFDataObject object, String prefix, int depth) {
+        return new KeyValues(prefix, start(object, prefix, depth), Long.MAX_VALUE);
+    }
+
+    /**
+     * Walks the paths of the values and objects below an object, see {@link TFDataObject#streamUniquePaths(String, int)}
+     */
+    static Spliterator<String> paths(TFDataObject object, String prefix, int depth) {
+        return new Paths(prefix, start(object, prefix, depth), Long.MAX_VALUE);
+    }
+
+    private static Deque<Frame> start(TFDataObject object, String prefix, int depth) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        if (!object.isValue()) {
+            stack.push(new Frame(object, "", depth, prefix == null || prefix.isEmpty()));
+        }
+        return stack;
+    }
+
+    /**
+     * Visits a child of the innermost object, pushes the child if it has to be walked
+     *
+     * @return the element for the child or null if it has none
+     */
+    abstract T visit(Frame frame, String key, TFDataObject child);
+
+    abstract TFTraversal<T> create(Deque<Frame> stack, long estimate);
+
+    /**
+     * Walks the children of an object after the current child
+     */
+    final void push(TFDataObject object, String path, Frame parent, int relation) {
+        int depth = parent.depth < 0 ? parent.depth : parent.depth - 1;
+        stack.push(new Frame(object, path, depth, relation == ALL));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            TFDataObject child = frame.nextChild();
+            if (child == null) {
+                stack.pop();
+                continue;
+            }
+            T element = visit(frame, frame.key, child);
+            if (element != null) {
+                action.accept(element);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        //the deepest frame is on top, the shallowest one able to give away half of its children is split
+        Iterator<Frame> frames = stack.descendingIterator();
+        int deeper = stack.size();
+        Frame split = null;
+        while (frames.hasNext()) {
+            Frame frame = frames.next();
+            deeper--;
+            if (frame.remaining() >= 2) {
+                split = frame;
+                break;
+            }
+        }
+        if (split == null) {
+            return null;
+        }
+        //everything in progress below the split frame comes before its remaining children, the prefix takes it along
+        Deque<Frame> head = new ArrayDeque<>();
+        for (int i = 0; i < deeper; i++) {
+            head.addLast(stack.pollFirst());
+        }
+        head.addLast(split.head(split.remaining() / 2));
+        estimate >>>= 1;
+        return create(head, estimate);
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * Checks how the paths below an object relate to the prefix, the object's own children have the path base.key
+     */
+    static int relation(String base, String key, String prefix) {
+        int baseLength = base.length();
+        int keyStart = baseLength == 0 ? 0 : baseLength + 1;
+        int length = keyStart + key.length();
+        int common = Math.min(length, prefix.length());
+        if (!prefix.regionMatches(0, base, 0, Math.min(baseLength, common))) {
+            return NONE;
+        }
+        if (keyStart > 0 && common > baseLength && prefix.charAt(baseLength) != '.') {
+            return NONE;
+        }
+        if (common > keyStart && !prefix.regionMatches(keyStart, key, 0, common - keyStart)) {
+            return NONE;
+        }
+        if (length >= prefix.length()) {
+            return ALL;
+        }
+        //deeper paths continue with a dot, a prefix like "items.10" does not reach into "items.1"
+        return prefix.charAt(length) == '.' ? SOME : NONE;
+    }
+
+    /**
+     * Values below the object with the path of the object holding them, relative to the object the walk started at
+     */
+    private static final class KeyValues extends TFTraversal<TFDataObject.DataObjectEntry> {
+
+        private KeyValues(String prefix, Deque<Frame> stack, long estimate) {
+            super(prefix, stack, estimate);
+        }
+
+        @Override
+        TFDataObject.DataObjectEntry visit(Frame frame, String key, TFDataObject child) {
+            int relation = frame.matched ? ALL : relation(frame.path, key, prefix);
+            if (child.isValue()) {
+                //values match on their own path like they do for the path walk
+                return relation == ALL ? new TFDataObject.DataObjectEntry(frame.path, key, child.getValue()) : null;
+            }
+            if (frame.depth != 0 && relation != NONE) {
+                push(child, frame.path.isEmpty() ? key : frame.path + "." + key, frame, relation);
+            }
+            return null;
+        }
+
+        @Override
+        TFTraversal<TFDataObject.DataObjectEntry> create(Deque<Frame> stack, long estimate) {
+            return new KeyValues(prefix, stack, estimate);
+        }
+    }
+
+    /**
+     * Dotted paths of values and objects relative to the object the walk started at
+     */
+    private static final class Paths extends TFTraversal<String> {
+
+        private Paths(String prefix, Deque<Frame> stack, long estimate) {
+            super(prefix, stack, estimate);
+        }
+
+        @Override
+        String visit(Frame frame, String key, TFDataObject child) {
+            int relation = frame.matched ? ALL : relation(frame.path, key, prefix);
+            if (relation == NONE) {
+                return null;
+            }
+            String path = frame.path.isEmpty() ? key : frame.path + "." + key;
+            if (!child.isValue() && frame.depth != 0) {
+                push(child, path, frame, relation);
+            }
+            return relation == ALL ? path : null;
+        }
+
+        @Override
+        TFTraversal<String> create(Deque<Frame> stack, long estimate) {
+            return new Paths(prefix, stack, estimate);
+        }
+    }
+
+    /**
+     * An object whose children are being visited, its children are copied out once the frame is split
+     */
+    static final class Frame {
+        private final TFDataObject object;
+        final String path;
+        //how many more object levels may be walked below the children, negative for no limit
+        final int depth;
+        final boolean matched;
+        //position in the child map while the frame was not split, repeated keys are walked through occurrence
+        private TFChildMap children;
+        private int slot;
+        private int occurrence;
+        //key at 2 * i, child at 2 * i + 1
+        private Object[] pending;
+        private int index;
+        private int end;
+        private String key;
+
+        private Frame(TFDataObject object, String path, int depth, boolean matched) {
+            this.object = object;
+            this.path = path;
+            this.depth = depth;
+            this.matched = matched;
+        }
+
+        private TFDataObject nextChild() {
+            if (pending == null) {
+                if (children == null) {
+                    children = object.getContentMap();
+                }
+                for (; slot < children.slotLimit(); slot++, occurrence = 0) {
+                    String current = children.keyAt(slot);
+                    if (current != null && occurrence < children.countAt(slot)) {
+                        key = current;
+                        return children.childAt(slot, occurrence++);
+                    }
+                }
+                return null;
+            }
+            if (index == end) {
+                return null;
+            }
+            key = (String) pending[2 * index];
+            return (TFDataObject) pending[2 * index++ + 1];
+        }
+
+        /**
+         * @return how many children have not been visited yet
+         */
+        private int remaining() {
+            if (pending != null) {
+                return end - index;
+            }
+            if (children == null) {
+                children = object.getContentMap();
+            }
+            pending = new Object[2 * children.childCount()];
+            int count = 0;
+            for (; slot < children.slotLimit(); slot++, occurrence = 0) {
+                String current = children.keyAt(slot);
+                for (; current != null && occurrence < children.countAt(slot); occurrence++) {
+                    pending[2 * count] = current;
+                    pending[2 * count + 1] = children.childAt(slot, occurrence);
+                    count++;
+                }
+            }
+            children = null;
+            index = 0;
+            end = count;
+            return count;
+        }
+
+        /**
+         * Splits off the next children into a new frame, this frame continues after them
+         */
+        private Frame head(int count) {
+            Frame head = new Frame(object, path, depth, matched);
+            head.pending = pending;
+            head.index = index;
+            head.end = index + count;
+            index += count;
+            return head;
+        }
+    }
+}
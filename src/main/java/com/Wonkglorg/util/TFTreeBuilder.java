@@ -0,0 +1,126 @@
+package com.Wonkglorg.util;
+
+import java.util.Arrays;
+
+/*
+ * Visitor that builds a TFDataObject tree from the events of a TFReader.
+ * Open objects are kept on an explicit stack so every character is only looked at once regardless of nesting depth
+ */
+final class TFTreeBuilder implements TFVisitor {
+
+    private final TFDataObject root = new TFDataObject("", null, (String) null);
+    private TFDataObject[] nodes = new TFDataObject[16];
+    private String[] paths = new String[16];
+    private int depth;
+    private final TFStringPool pool;
+    //counted for TFMetrics, cheap enough to always count
+    private long nodeCount;
+    private int maxDepth;
+
+    TFTreeBuilder(TFStringPool pool) {
+        this.pool = pool;
+        nodes[0] = root;
+        paths[0] = "";
+    }
+
+    private TFTreeBuilder(TFStringPool pool, TFDataObject target, String childPath) {
+        this.pool = pool;
+        nodes[0] = root;
+        paths[0] = "";
+        nodes[1] = target;
+        paths[1] = childPath;
+        depth = 1;
+    }
+
+    /**
+     * Parses the input into a new root object, the first top level object is unwrapped into the root as tf2 files always have a single root key
+     *
+     * @param input the input to parse
+     * @param pool  the pool to canonicalize keys, values and paths with, or null
+     * @return the root DataObject
+     */
+    static TFDataObject build(TFInput input, TFStringPool pool) {
+        TFTreeBuilder builder = new TFTreeBuilder(pool);
+        if (!TFMetrics.isEnabled()) {
+            TFReader.read(new TFTokenizer(input), builder, pool);
+            return builder.root();
+        }
+        TFEvents.Parse event = TFMetrics.startParse();
+        TFReader.read(new TFTokenizer(input), builder, pool);
+        TFMetrics.parsed(event, input.length(), builder.nodeCount, builder.maxDepth);
+        return builder.root();
+    }
+
+    /**
+     * Parses the body of an object into an existing object, the region must not include the braces of the object itself
+     *
+     * @param input     the input to parse
+     * @param start     the index right after the opening brace of the object
+     * @param end       the index of the closing brace of the object
+     * @param target    the object to add the children to
+     * @param childPath the path the children of the object get
+     * @param pool      the pool to canonicalize keys, values and paths with, or null
+     */
+    static void buildChildren(TFInput input, int start, int end, TFDataObject target, String childPath, TFStringPool pool) {
+        TFTreeBuilder builder = new TFTreeBuilder(pool, target, childPath);
+        TFReader.read(new TFTokenizer(input, start, end), builder, pool);
+    }
+
+    @Override
+    public boolean startObject(String key) {
+        if (depth + 1 == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+            paths = Arrays.copyOf(paths, paths.length * 2);
+        }
+        if (depth == 0) {
+            //top level objects are unwrapped into the root
+            if (root.getKey() == null) {
+                root.setKey(key);
+            }
+            nodes[1] = root;
+            paths[1] = key;
+        } else {
+            String parentPath = paths[depth];
+            TFDataObject child = new TFDataObject(parentPath, key, (String) null);
+            nodes[depth].getChildMap().add(key, child);
+            nodes[depth + 1] = child;
+            paths[depth + 1] = parentPath.isEmpty() ? key : childPath(parentPath, key, pool);
+            nodeCount++;
+        }
+        depth++;
+        if (depth > maxDepth) maxDepth = depth;
+        return true;
+    }
+
+    @Override
+    public void keyValue(String key, String value) {
+        nodes[depth].getChildMap().add(key, new TFDataObject(paths[depth], key, value));
+        nodeCount++;
+    }
+
+    @Override
+    public void endObject() {
+        nodes[depth] = null;
+        depth--;
+    }
+
+    /**
+     * Joins a path and a key, canonicalizing the result if a pool is given
+     *
+     * @param parentPath the path of the parent
+     * @param key        the key of the child
+     * @param pool       the pool to use, or null
+     * @return the joined path
+     */
+    static String childPath(String parentPath, String key, TFStringPool pool) {
+        String path = parentPath + "." + key;
+        return pool == null ? path : pool.intern(path);
+    }
+
+    /**
+     * @return the root of the built tree
+     */
+    TFDataObject root() {
+        return root;
+    }
+}
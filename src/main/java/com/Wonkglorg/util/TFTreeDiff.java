@@ -0,0 +1,112 @@
+package com.Wonkglorg.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * The differences between two versions of a tree, for example the items_game.txt of two game patches.
+ * Both trees are walked together and every pair of subtrees with equal structural hashes is skipped, so comparing
+ * trees that share most of their content only walks the changed branches once the hashes are known.
+ * Values and objects that only exist on one side are reported as a whole, not every path below them, as are keys repeated on either side
+ */
+public final class TFTreeDiff {
+
+    private final List<String> added = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+    private final List<String> changed = new ArrayList<>();
+
+    private TFTreeDiff() {
+    }
+
+    /**
+     * Compares two versions of a tree, see {@link TFDataObject#structuralHash()}
+     *
+     * @param before the older version
+     * @param after  the newer version
+     * @return the differences with the paths of each kind sorted
+     */
+    public static TFTreeDiff of(TFDataObject before, TFDataObject after) {
+        TFTreeDiff diff = new TFTreeDiff();
+        diff.compare(before, after, "");
+        Collections.sort(diff.added);
+        Collections.sort(diff.removed);
+        Collections.sort(diff.changed);
+        return diff;
+    }
+
+    private void compare(TFDataObject before, TFDataObject after, String path) {
+        if (before.contentEquals(after)) {
+            return;
+        }
+        if (before.isValue() || after.isValue()) {
+            //a different value or a value replaced by an object or the other way around
+            changed.add(path);
+            return;
+        }
+        TFChildMap beforeChildren = before.getContentMap();
+        TFChildMap afterChildren = after.getContentMap();
+        boolean duplicates = before.hasDuplicates() || after.hasDuplicates();
+        for (var entry : beforeChildren.entrySet()) {
+            TFDataObject other = afterChildren.get(entry.getKey());
+            if (other == null) {
+                removed.add(join(path, entry.getKey()));
+            } else if (duplicates && repeated(before, after, entry.getKey())) {
+                if (!TFDataObject.contentEquals(beforeChildren.getAll(entry.getKey()), afterChildren.getAll(entry.getKey()))) {
+                    changed.add(join(path, entry.getKey()));
+                }
+            } else {
+                compare(entry.getValue(), other, join(path, entry.getKey()));
+            }
+        }
+        for (String key : afterChildren.keySet()) {
+            if (!beforeChildren.containsKey(key)) {
+                added.add(join(path, key));
+            }
+        }
+    }
+
+    /**
+     * @return true if a key holds more than one child on either side, its children are then compared as a whole
+     */
+    private static boolean repeated(TFDataObject before, TFDataObject after, String key) {
+        return before.getAll(key).size() > 1 || after.getAll(key).size() > 1;
+    }
+
+    private static String join(String path, String key) {
+        return path.isEmpty() ? key : path + "." + key;
+    }
+
+    /**
+     * @return the dotted paths of values and objects that only exist in the newer version
+     */
+    public List<String> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * @return the dotted paths of values and objects that only exist in the older version
+     */
+    public List<String> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * @return the dotted paths of values whose value changed and of entries that changed between value and object
+     */
+    public List<String> getChanged() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * @return true if both versions have the same content
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "TFTreeDiff{added=" + added + ", removed=" + removed + ", changed=" + changed + "}";
+    }
+}
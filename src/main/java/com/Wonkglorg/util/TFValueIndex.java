@@ -0,0 +1,248 @@
+package com.Wonkglorg.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Reverse index from (key, value) to the objects holding that entry, for questions like "which items have item_class tf_weapon_rocketlauncher"
+ * or "which items use prefab X". The index is built in one pass and attached to the tree, add(), setValue() and addContent() on any object
+ * of the tree keep it up to date. A tree holds at most one index at a time, attaching a new one detaches the previous one.
+ * Frozen objects and compact views are indexed but can not change, so they are never attached.
+ * Subtrees a merged tree shares with its inputs belong to whichever index was attached last
+ */
+public final class TFValueIndex {
+
+    private final TFDataObject root;
+    //null if every key is indexed
+    private final Set<String> keys;
+    //key -> value -> objects holding the entry
+    private final Map<String, Map<String, Set<TFDataObject>>> entries = new HashMap<>();
+    //entry with an indexed key -> object holding it
+    private final Map<TFDataObject, TFDataObject> owners = new IdentityHashMap<>();
+    //object -> dotted path relative to the root
+    private final Map<TFDataObject, String> objectPaths = new IdentityHashMap<>();
+
+    private TFValueIndex(TFDataObject root, Set<String> keys) {
+        this.root = root;
+        this.keys = keys;
+    }
+
+    /**
+     * Indexes the values of the given keys below a root and attaches the index to the tree
+     *
+     * @param root the object to index
+     * @param keys the keys whose values are indexed, every key is indexed if none are given
+     * @return the new index
+     */
+    public static TFValueIndex of(TFDataObject root, String... keys) {
+        TFValueIndex index = new TFValueIndex(root, keys.length == 0 ? null : new HashSet<>(List.of(keys)));
+        index.objectPaths.put(root, "");
+        index.attach(root);
+        index.addChildren(root, "");
+        return index;
+    }
+
+    /**
+     * Gets every object holding an entry
+     *
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     * @return an unmodifiable live view of the objects in the order they were indexed, empty if there are none
+     */
+    public Set<TFDataObject> find(String key, String value) {
+        Map<String, Set<TFDataObject>> values = entries.get(key);
+        Set<TFDataObject> found = values == null ? null : values.get(value);
+        return found == null ? Set.of() : Collections.unmodifiableSet(found);
+    }
+
+    /**
+     * Gets the path of every object holding an entry
+     *
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     * @return the dotted paths relative to the indexed root, the same paths {@link TFDataObject#get(String)} accepts
+     */
+    public List<String> paths(String key, String value) {
+        Set<TFDataObject> found = find(key, value);
+        List<String> paths = new ArrayList<>(found.size());
+        for (TFDataObject object : found) {
+            paths.add(objectPaths.get(object));
+        }
+        return paths;
+    }
+
+    /**
+     * Gets every value present for a key
+     *
+     * @param key the key
+     * @return an unmodifiable live view of the values
+     */
+    public Set<String> values(String key) {
+        Map<String, Set<TFDataObject>> values = entries.get(key);
+        return values == null ? Set.of() : Collections.unmodifiableSet(values.keySet());
+    }
+
+    /**
+     * Checks if a key is part of this index
+     *
+     * @param key the key
+     * @return true if values of the key are indexed
+     */
+    public boolean isIndexed(String key) {
+        return keys == null || keys.contains(key);
+    }
+
+    /**
+     * @return the indexed root
+     */
+    public TFDataObject getRoot() {
+        return root;
+    }
+
+    /**
+     * Stops updating this index, the tree is no longer slowed down by it and the index keeps its last state
+     */
+    public void detach() {
+        for (TFDataObject object : objectPaths.keySet()) {
+            if (object.getIndex() == this) object.setIndex(null);
+        }
+        for (TFDataObject object : owners.keySet()) {
+            if (object.getIndex() == this) object.setIndex(null);
+        }
+    }
+
+    //-------updates from the tree ---------
+
+    /**
+     * Called after a child was put into an object of the tree
+     *
+     * @param parent   the object the child was put into
+     * @param key      the key of the child
+     * @param child    the new child
+     * @param replaced every child previously stored under the key
+     */
+    void added(TFDataObject parent, String key, TFDataObject child, List<TFDataObject> replaced) {
+        String parentPath = objectPaths.get(parent);
+        if (parentPath == null) {
+            return;
+        }
+        for (TFDataObject previous : replaced) {
+            if (previous != child) remove(parent, key, previous);
+        }
+        add(parent, parentPath, key, child);
+    }
+
+    /**
+     * Called after the value of an object was changed
+     */
+    void valueChanged(TFDataObject object, String oldValue) {
+        TFDataObject owner = owners.get(object);
+        if (owner == null) {
+            return;
+        }
+        unlink(object.getKey(), oldValue, owner);
+        link(object.getKey(), object.getValue(), owner);
+    }
+
+    /**
+     * Called after a shared object was replaced by its copy, the copy takes over every entry of the original
+     */
+    void copied(TFDataObject original, TFDataObject copy) {
+        String path = objectPaths.remove(original);
+        if (path == null) {
+            return;
+        }
+        objectPaths.put(copy, path);
+        attach(copy);
+        TFChildMap children = copy.getContentMap();
+        for (int slot = 0; slot < children.slotLimit(); slot++) {
+            String key = children.keyAt(slot);
+            for (int i = 0; key != null && i < children.countAt(slot); i++) {
+                TFDataObject child = children.childAt(slot, i);
+                if (owners.get(child) == original) {
+                    owners.put(child, copy);
+                    unlink(key, child.getValue(), original);
+                    link(key, child.getValue(), copy);
+                }
+            }
+        }
+    }
+
+    //-------internal ---------
+
+    private void addChildren(TFDataObject object, String path) {
+        TFChildMap children = object.getContentMap();
+        for (int slot = 0; slot < children.slotLimit(); slot++) {
+            String key = children.keyAt(slot);
+            for (int i = 0; key != null && i < children.countAt(slot); i++) {
+                add(object, path, key, children.childAt(slot, i));
+            }
+        }
+    }
+
+    private void add(TFDataObject parent, String parentPath, String key, TFDataObject child) {
+        attach(child);
+        if (isIndexed(key)) {
+            owners.put(child, parent);
+            link(key, child.getValue(), parent);
+        }
+        if (!child.isValue()) {
+            String path = parentPath.isEmpty() ? key : parentPath + "." + key;
+            objectPaths.put(child, path);
+            addChildren(child, path);
+        }
+    }
+
+    private void remove(TFDataObject parent, String key, TFDataObject child) {
+        if (owners.remove(child) != null) {
+            unlink(key, child.getValue(), parent);
+        }
+        if (objectPaths.remove(child) != null) {
+            TFChildMap children = child.getContentMap();
+            for (int slot = 0; slot < children.slotLimit(); slot++) {
+                String childKey = children.keyAt(slot);
+                for (int i = 0; childKey != null && i < children.countAt(slot); i++) {
+                    remove(child, childKey, children.childAt(slot, i));
+                }
+            }
+        }
+        if (child.getIndex() == this) {
+            child.setIndex(null);
+        }
+    }
+
+    private void link(String key, String value, TFDataObject owner) {
+        if (value == null) {
+            return;
+        }
+        entries.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(value, v -> new LinkedHashSet<>()).add(owner);
+    }
+
+    private void unlink(String key, String value, TFDataObject owner) {
+        Map<String, Set<TFDataObject>> values = entries.get(key);
+        if (value == null || values == null) {
+            return;
+        }
+        for (TFDataObject other : owner.getContentMap().getAll(key)) {
+            //a repeated key may hold the same value more than once
+            if (owners.get(other) == owner && value.equals(other.getValue())) return;
+        }
+        Set<TFDataObject> found = values.get(value);
+        if (found != null && found.remove(owner) && found.isEmpty()) {
+            values.remove(value);
+        }
+    }
+
+    private void attach(TFDataObject object) {
+        if (!object.isFrozen() && !object.isView()) {
+            object.setIndex(this);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.Wonkglorg.util;
+
+import java.util.Arrays;
+
+/*
+ * Parses the typed values behind the typed getters of TFDataObject, such as "1", "1.5", "255 128 0" or "[0 0 1]".
+ * Nothing throws, a value that can not be parsed is reported through the return value so defaults never cost an exception
+ */
+final class TFValueParser {
+
+    static final byte NONE = 0;
+    static final byte LONG = 1;
+    static final byte DOUBLE = 2;
+    static final byte INVALID_NUMBER = 3;
+
+    private TFValueParser() {
+    }
+
+    /**
+     * Gets how a value parses as a number, integral values are parsed as a long and everything else as a double. "true" and "false" parse as 1 and 0
+     *
+     * @param value the value
+     * @return LONG, DOUBLE or INVALID_NUMBER
+     */
+    static byte numberKind(String value) {
+        int start = skipWhitespace(value, 0);
+        int end = trimEnd(value, start);
+        if (start == end) return INVALID_NUMBER;
+        if (isIntegral(value, start, end)) {
+            //up to 18 digits always fit into a long, longer values are checked by parseLong
+            return end - start < 19 || fitsLong(value.substring(start, end)) ? LONG : DOUBLE;
+        }
+        if (value.regionMatches(true, start, "true", 0, 4) && end - start == 4 || value.regionMatches(true, start, "false", 0, 5) && end - start == 5) {
+            return LONG;
+        }
+        return Double.isNaN(parseDoubleOrNaN(value.substring(start, end))) ? INVALID_NUMBER : DOUBLE;
+    }
+
+    /**
+     * Parses a value numberKind reported as LONG
+     */
+    static long parseLong(String value) {
+        int start = skipWhitespace(value, 0);
+        int end = trimEnd(value, start);
+        char first = value.charAt(start);
+        if (first == 't' || first == 'T') return 1;
+        if (first == 'f' || first == 'F') return 0;
+        if (end - start < 19) {
+            boolean negative = first == '-';
+            int i = negative || first == '+' ? start + 1 : start;
+            long result = 0;
+            for (; i < end; i++) {
+                result = result * 10 + (value.charAt(i) - '0');
+            }
+            return negative ? -result : result;
+        }
+        return Long.parseLong(value.substring(start, end));
+    }
+
+    /**
+     * Parses a value numberKind reported as DOUBLE
+     */
+    static double parseDouble(String value) {
+        return Double.parseDouble(value.trim());
+    }
+
+    /**
+     * Parses a color of three or four components between 0 and 255, red green blue and an optional alpha
+     *
+     * @param value the value
+     * @return the color as 0xAARRGGBB in the low 32 bits, or -1 if the value is not a color
+     */
+    static long parseColor(String value) {
+        int[] components = new int[4];
+        int count = 0;
+        int i = skipBracket(value, skipWhitespace(value, 0));
+        int end = trimBracket(value, trimEnd(value, i), i);
+        while (i < end) {
+            int componentEnd = i;
+            while (componentEnd < end && !Character.isWhitespace(value.charAt(componentEnd))) componentEnd++;
+            if (count == 4 || !isIntegral(value, i, componentEnd) || componentEnd - i > 4) return -1;
+            int component = (int) parseLong(value.substring(i, componentEnd));
+            if (component < 0 || component > 255) return -1;
+            components[count++] = component;
+            i = skipWhitespace(value, componentEnd);
+        }
+        if (count < 3) return -1;
+        int alpha = count == 4 ? components[3] : 255;
+        return ((long) alpha << 24 | components[0] << 16 | components[1] << 8 | components[2]) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Parses a vector of whitespace separated numbers, optionally wrapped in [] or {} as in some entity and particle files
+     *
+     * @param value the value
+     * @return the components or null if the value is not a vector
+     */
+    static float[] parseVector(String value) {
+        float[] components = new float[3];
+        int count = 0;
+        int i = skipBracket(value, skipWhitespace(value, 0));
+        int end = trimBracket(value, trimEnd(value, i), i);
+        while (i < end) {
+            int componentEnd = i;
+            while (componentEnd < end && !Character.isWhitespace(value.charAt(componentEnd))) componentEnd++;
+            double component = parseDoubleOrNaN(value.substring(i, componentEnd));
+            if (Double.isNaN(component)) return null;
+            if (count == components.length) {
+                components = Arrays.copyOf(components, count * 2);
+            }
+            components[count++] = (float) component;
+            i = skipWhitespace(value, componentEnd);
+        }
+        if (count == 0) return null;
+        return count == components.length ? components : Arrays.copyOf(components, count);
+    }
+
+    private static boolean isIntegral(String value, int start, int end) {
+        int i = start;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) i++;
+        if (i == end) return false;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean fitsLong(String value) {
+        try {
+            Long.parseLong(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the parsed number or NaN if the value is not a plain decimal number, parseDouble alone would also accept "NaN", "Infinity" and hex floats
+     */
+    private static double parseDoubleOrNaN(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E' && c != 'f' && c != 'F') return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static int skipWhitespace(String value, int i) {
+        while (i < value.length() && Character.isWhitespace(value.charAt(i))) i++;
+        return i;
+    }
+
+    private static int trimEnd(String value, int start) {
+        int end = value.length();
+        while (end > start && Character.isWhitespace(value.charAt(end - 1))) end--;
+        return end;
+    }
+
+    private static int skipBracket(String value, int i) {
+        return i < value.length() && (value.charAt(i) == '[' || value.charAt(i) == '{') ? skipWhitespace(value, i + 1) : i;
+    }
+
+    private static int trimBracket(String value, int end, int start) {
+        if (end > start && (value.charAt(end - 1) == ']' || value.charAt(end - 1) == '}')) {
+            end--;
+            while (end > start && Character.isWhitespace(value.charAt(end - 1))) end--;
+        }
+        return end;
+    }
+}
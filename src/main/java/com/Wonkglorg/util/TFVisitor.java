@@ -0,0 +1,34 @@
+package com.Wonkglorg.util;
+
+/*
+ * Receives the events of a TFReader while it walks through a file.
+ * Nothing is kept in memory by the reader itself so a visitor can process files of any size in constant memory,
+ * all methods do nothing by default so only the needed ones have to be overridden
+ */
+public interface TFVisitor {
+
+    /**
+     * Called when a new object is opened
+     *
+     * @param key the key of the object
+     * @return true to visit the object's content, false to skip it entirely, {@link #endObject()} is not called for skipped objects
+     */
+    default boolean startObject(String key) {
+        return true;
+    }
+
+    /**
+     * Called for every key value pair in the current object
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    default void keyValue(String key, String value) {
+    }
+
+    /**
+     * Called when the current object is closed
+     */
+    default void endObject() {
+    }
+}
@@ -0,0 +1,131 @@
+package com.Wonkglorg.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Writes a TFDataObject as yaml straight to an Appendable without building the document in memory first.
+ * Indents are taken from a table that is only extended when a deeper level is reached, children are written as they are iterated
+ */
+public final class TFYamlWriter {
+
+    private final Appendable out;
+    private final String indentUnit;
+    private String[] indents = new String[16];
+
+    /**
+     * Creates a new writer
+     *
+     * @param out          where the yaml is written to, should be buffered if it writes to a file or stream
+     * @param indentAmount how many spaces an indent should be
+     */
+    public TFYamlWriter(Appendable out, int indentAmount) {
+        this.out = out;
+        this.indentUnit = " ".repeat(indentAmount);
+        indents[0] = "";
+    }
+
+    /**
+     * Writes the children of an object and everything below them
+     *
+     * @param object the object to write
+     * @throws IOException if the underlying Appendable fails
+     */
+    public void write(TFDataObject object) throws IOException {
+        writeChildren(object, 0);
+    }
+
+    private void writeChildren(TFDataObject object, int level) throws IOException {
+        String indent = indent(level);
+        boolean duplicates = object.hasDuplicates();
+        for (Map.Entry<String, TFDataObject> entry : object.getContentMap().entrySet()) {
+            out.append(indent);
+            appendKey(entry.getKey());
+            out.append(':');
+            TFDataObject child = entry.getValue();
+            if (duplicates && writeRepeated(object.getContentMap().getAll(entry.getKey()), level + 1)) {
+                continue;
+            }
+            if (!child.isValue()) {
+                out.append('\n');
+                writeChildren(child, level + 1);
+            } else {
+                out.append(" \"");
+                appendValue(child.getValue());
+                out.append("\"\n");
+            }
+        }
+    }
+
+    /**
+     * Writes every child of a repeated key below it, objects are written one after another and values as list items
+     *
+     * @return false if the key is not repeated
+     */
+    private boolean writeRepeated(List<TFDataObject> children, int level) throws IOException {
+        if (children.size() < 2) {
+            return false;
+        }
+        out.append('\n');
+        for (TFDataObject child : children) {
+            if (!child.isValue()) {
+                writeChildren(child, level);
+            } else {
+                out.append(indent(level)).append("- \"");
+                appendValue(child.getValue());
+                out.append("\"\n");
+            }
+        }
+        return true;
+    }
+
+    private String indent(int level) {
+        if (level >= indents.length) {
+            indents = Arrays.copyOf(indents, Math.max(indents.length * 2, level + 1));
+        }
+        String indent = indents[level];
+        if (indent == null) {
+            indent = indent(level - 1) + indentUnit;
+            indents[level] = indent;
+        }
+        return indent;
+    }
+
+    /**
+     * Appends a key, quoting it if it contains special characters
+     */
+    private void appendKey(String key) throws IOException {
+        if (key == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < key.length() && !quote; i++) {
+            char c = key.charAt(i);
+            quote = c == ':' || c == ' ' || c == '"';
+        }
+        if (quote) {
+            out.append('"').append(key).append('"');
+        } else {
+            out.append(key);
+        }
+    }
+
+    /**
+     * Appends a value with its quotes escaped
+     */
+    private void appendValue(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int runStart = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.append(value, runStart, i).append("\\\"");
+                runStart = i + 1;
+            }
+        }
+        out.append(value, runStart, value.length());
+    }
+}
@@ -0,0 +1,65 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TFBulkLoaderTest {
+
+    @Test
+    void globSelectsFilesAndTreesKeepTheirOrder() throws IOException {
+        Path directory = Files.createTempDirectory("bulk");
+        try {
+            Path items = Files.writeString(directory.resolve("items.txt"), "\"items_game\" { \"items\" { \"1\" { \"name\" \"bat\" } } }");
+            Path more = Files.writeString(directory.resolve("more.txt"), "\"items_game\" { \"items\" { \"2\" { \"name\" \"saw\" } } }");
+            Files.createDirectories(directory.resolve("ui"));
+            Path hud = Files.writeString(directory.resolve("ui").resolve("hud.res"), "\"hud\" { \"xpos\" \"1\" }");
+
+            TFBulkLoader.Result result = TFBulkLoader.create().maxConcurrency(1).load(directory, "*.txt");
+            assertFalse(result.hasErrors());
+            assertEquals(List.of(items, more), List.copyOf(result.trees().keySet()));
+            TFDataObject merged = result.merged();
+            assertEquals("bat", merged.getValue("items.1", "name"));
+            assertEquals("saw", merged.getValue("items.2", "name"));
+
+            TFBulkLoader.Result nested = TFBulkLoader.create().virtualThreads(true).load(directory, "**/*.res");
+            assertEquals(List.of(hud), List.copyOf(nested.trees().keySet()));
+            assertEquals("1", nested.trees().get(hud).getValue("", "xpos"));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    void failingFilesAreCollectedInsteadOfAborting() throws IOException {
+        Path file = Files.createTempFile("bulk", ".txt");
+        Path missing = file.resolveSibling(file.getFileName() + ".missing");
+        try {
+            Files.writeString(file, "\"r\" { \"a\" \"1\" }");
+            TFBulkLoader.Result result = TFBulkLoader.create().maxConcurrency(2).load(List.of(missing, file));
+            assertTrue(result.hasErrors());
+            assertTrue(result.errors().get(missing) instanceof UncheckedIOException);
+            assertEquals(List.of(file), List.copyOf(result.trees().keySet()));
+            assertThrows(UnsupportedOperationException.class, () -> result.trees().clear());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertThrows(IllegalArgumentException.class, () -> TFBulkLoader.create().maxConcurrency(0));
+        assertFalse(TFBulkLoader.create().load(List.of()).hasErrors());
+    }
+}
@@ -0,0 +1,148 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TFDataObjectTest {
+
+    private static final String BASE = "\"base\" { \"panel\" { \"wide\" \"10\" \"tall\" \"20\" } \"xpos\" \"1\" \"xpos\" \"2\" }";
+    private static final String OVERRIDE = "\"base\" { \"label\" { \"text\" \"hi\" } }";
+
+    @Test
+    void writesThroughGetDoNotReachMergedInputs() {
+        TFDataObject base = TFDataObject.from(BASE);
+        TFDataObject override = TFDataObject.from(OVERRIDE);
+        TFDataObject merged = TFDataObject.merge(base, override);
+
+        merged.get("panel.wide").setValue("99");
+        merged.get("label").addContent("font", new TFDataObject("", "font", "Default"));
+        merged.get("panel").getChildren().remove("tall");
+
+        assertEquals("10", base.getValue("panel", "wide"));
+        assertEquals("20", base.getValue("panel", "tall"));
+        assertNull(override.getValue("label", "font"));
+        assertEquals("99", merged.getValue("panel", "wide"));
+        assertEquals("Default", merged.getValue("label", "font"));
+        assertNull(merged.getValue("panel", "tall"));
+    }
+
+    @Test
+    void repeatedKeysAreCopiedBeforeWrites() {
+        TFDataObject base = TFDataObject.from(BASE);
+        TFDataObject merged = TFDataObject.merge(base);
+        merged.getAll("xpos").get(0).setValue("5");
+        assertEquals(List.of("1", "2"), base.getAll("xpos").stream().map(TFDataObject::getValue).toList());
+        assertEquals(List.of("5", "2"), merged.getAll("xpos").stream().map(TFDataObject::getValue).toList());
+    }
+
+    @Test
+    void inputsStayWritableAfterMerge() {
+        TFDataObject base = TFDataObject.from(BASE);
+        TFDataObject panel = base.get("panel");
+        TFDataObject merged = TFDataObject.merge(base);
+        panel.get("wide").setValue("11");
+        panel.addContent("font", new TFDataObject("", "font", "Default"));
+        panel.getChildren().remove("tall");
+        base.getAll("xpos").get(0).setValue("7");
+        assertEquals("11", base.getValue("panel", "wide"));
+        assertEquals("Default", base.getValue("panel", "font"));
+        assertNull(base.getValue("panel", "tall"));
+
+        merged.get("panel.wide").setValue("99");
+        merged.get("panel").getChildren().remove("font");
+        merged.getAll("xpos").get(0).setValue("8");
+        assertEquals("11", base.getValue("panel", "wide"));
+        assertEquals("Default", base.getValue("panel", "font"));
+        assertEquals(List.of("7", "2"), base.getAll("xpos").stream().map(TFDataObject::getValue).toList());
+        assertEquals("99", merged.getValue("panel", "wide"));
+        assertEquals(List.of("8", "2"), merged.getAll("xpos").stream().map(TFDataObject::getValue).toList());
+    }
+
+    @Test
+    void queriesCompareDottedValuesAndVisitRepeatedKeys() {
+        String text = "\"items\" { \"1\" { \"attributes\" { \"a\" { \"value\" \"0.5\" } \"b\" { \"value\" \"1\" } } } \"1\" { \"name\" \"bat\" } }";
+        assertEquals(List.of("0.5"), TFDataObject.from(text).query("1.attributes.*.value=0.5").map(TFDataObject::getValue).toList());
+        assertEquals(List.of("0.5", "1"), TFDataObject.from(text).query("*.attributes.*.value").map(TFDataObject::getValue).toList());
+        assertEquals(List.of("bat"), TFDataObject.from(text).query("1.name").map(TFDataObject::getValue).toList());
+        TFDataObject compact = TFCompactDocument.from(TFInput.of(text)).root();
+        assertEquals(List.of("0.5", "1", "bat"), compact.query("**.*=*").map(TFDataObject::getValue).toList());
+        assertEquals(List.of("bat"), compact.query("1.name").map(TFDataObject::getValue).toList());
+        assertThrows(IllegalArgumentException.class, () -> TFQuery.compile("**=x"));
+        assertThrows(IllegalArgumentException.class, () -> TFQuery.compile("=x"));
+    }
+
+    @Test
+    void changesDropTheCachedHashesAboveThem() {
+        TFDataObject root = TFDataObject.from(BASE);
+        TFDataObject other = TFDataObject.from(BASE);
+        long before = root.structuralHash();
+        assertEquals(before, other.structuralHash());
+        root.get("panel.wide").setValue("11");
+        assertNotEquals(before, root.structuralHash());
+        assertEquals(before, other.structuralHash());
+        root.get("panel.wide").setValue("10");
+        assertEquals(before, root.structuralHash());
+        root.get("panel").getChildren().remove("tall");
+        assertFalse(root.contentEquals(other));
+        TFDataObject compact = TFCompactDocument.from(TFInput.of(BASE)).root();
+        assertEquals(before, compact.structuralHash());
+        assertEquals(other.get("panel").structuralHash(), compact.get("panel").structuralHash());
+    }
+
+    @Test
+    void repeatedKeysSurviveCopiesIndexesAndJson() {
+        TFDataObject root = TFDataObject.from(BASE);
+        TFDataObject compact = TFCompactDocument.of(root).root();
+        assertEquals(List.of("1", "2"), compact.getAll("xpos").stream().map(TFDataObject::getValue).toList());
+        assertTrue(root.contentEquals(compact));
+        String json = root.toJson();
+        assertTrue(json.contains("\"xpos\" : \"1\"") && json.contains("\"xpos\" : \"2\""));
+
+        TFValueIndex index = TFValueIndex.of(root, "xpos");
+        assertEquals(List.of(""), index.paths("xpos", "1"));
+        assertEquals(List.of(""), index.paths("xpos", "2"));
+        root.getAll("xpos").get(1).setValue("1");
+        assertEquals(List.of(""), index.paths("xpos", "1"));
+        root.getAll("xpos").get(0).setValue("3");
+        assertEquals(List.of(""), index.paths("xpos", "1"));
+        root.addContent("xpos", new TFDataObject("", "xpos", "4"));
+        assertEquals(List.of(), index.paths("xpos", "1"));
+        assertEquals(List.of(), index.paths("xpos", "3"));
+        assertEquals(List.of(""), index.paths("xpos", "4"));
+    }
+
+    @Test
+    void addingBelowAValueIsRejected() {
+        TFDataObject root = TFDataObject.from(BASE);
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> root.add("panel.wide", "x", "1"));
+        assertTrue(error.getMessage().contains("panel.wide"));
+        assertEquals("10", root.getValue("panel", "wide"));
+    }
+
+    @Test
+    void walksVisitRepeatedKeysAndMatchValuesOnTheirPath() {
+        TFDataObject root = TFDataObject.from("\"r\" { \"dup\" \"1\" \"dup\" \"2\" \"items\" { \"1\" { \"name\" \"bat\" } \"10\" { \"name\" \"saw\" } } }");
+        assertEquals(List.of("1", "2"), root.getKeyValues("dup", -1).stream().map(TFDataObject.DataObjectEntry::value).toList());
+        assertEquals(List.of(new TFDataObject.DataObjectEntry("items.1", "name", "bat")), root.getKeyValues("items.1.na", -1));
+        assertEquals(List.of("items.1.name"), root.getAllUniquePaths("items.1.na", -1));
+        assertEquals(List.of("dup", "dup", "items", "items.1", "items.1.name", "items.10", "items.10.name"), root.getAllUniquePaths(null, -1));
+        assertEquals(4, root.streamKeyValues(null, -1).parallel().count());
+    }
+
+    @Test
+    void thawedCopyLeavesFrozenTreeUntouched() {
+        TFDataObject frozen = TFDataObject.from(BASE).freeze();
+        TFDataObject thawed = frozen.thaw();
+        thawed.get("panel.wide").setValue("30");
+        assertEquals("10", frozen.getValue("panel", "wide"));
+        assertEquals("30", thawed.getValue("panel", "wide"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TFInputTest {
+
+    private static final String LANG = "\"lang\" { \"Language\" \"caf\u00e9\" \"Tokens\" { \"TF_Quote\" \"say \\\"\u00fcber\\\" \u2603\" } }";
+
+    @Test
+    void byteOrderMarkTakesPrecedenceOverTheCharset() {
+        assertLang(parse(bytes(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, LANG, StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1));
+        assertLang(parse(bytes(new byte[]{(byte) 0xFF, (byte) 0xFE}, LANG, StandardCharsets.UTF_16LE), StandardCharsets.UTF_8));
+        assertLang(parse(bytes(new byte[]{(byte) 0xFE, (byte) 0xFF}, LANG, StandardCharsets.UTF_16BE), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void charsetIsUsedWithoutByteOrderMark() {
+        assertLang(parse(bytes(new byte[0], LANG, StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        assertLang(parse(bytes(new byte[0], LANG, StandardCharsets.UTF_16LE), StandardCharsets.UTF_16LE));
+        String latin = "\"lang\" { \"Language\" \"caf\u00e9\" }";
+        TFDataObject root = parse(bytes(new byte[0], latin, StandardCharsets.ISO_8859_1), StandardCharsets.ISO_8859_1);
+        assertEquals("caf\u00e9", root.getValue("", "Language"));
+    }
+
+    @Test
+    void smallAndMappedFilesReadTheSame() throws IOException {
+        StringBuilder large = new StringBuilder("\"lang\" { \"Language\" \"caf\u00e9\" \"Tokens\" { \"TF_Quote\" \"say \\\"\u00fcber\\\" \u2603\"");
+        for (int i = 0; large.length() < TFInput.MAP_THRESHOLD * 2; i++) {
+            large.append(" \"token").append(i).append("\" \"\u00e9").append(i).append('"');
+        }
+        large.append(" } }");
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.UTF_16LE}) {
+            for (String content : new String[]{LANG, large.toString()}) {
+                Path file = Files.createTempFile("input", ".txt");
+                try {
+                    byte[] bom = charset == StandardCharsets.UTF_16LE ? new byte[]{(byte) 0xFF, (byte) 0xFE} : new byte[0];
+                    ByteBuffer encoded = bytes(bom, content, charset);
+                    byte[] written = new byte[encoded.remaining()];
+                    encoded.get(written);
+                    Files.write(file, written);
+                    assertEquals(content == LANG, Files.size(file) < TFInput.MAP_THRESHOLD);
+
+                    TFDataObject root = TFDataObject.from(file, StandardCharsets.UTF_8);
+                    assertLang(root);
+                    assertEquals(TFDataObject.from(content).getAllUniquePaths(null, -1), root.getAllUniquePaths(null, -1));
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    void byteInputsDecodeOnlyWhatIsAsked() {
+        TFInput input = TFInput.of(bytes(new byte[0], "\"caf\u00e9\"", StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        assertEquals(7, input.length());
+        assertEquals("caf\u00e9", input.decode(1, 6));
+        assertFalse(input.hasCharUnits());
+    }
+
+    private static void assertLang(TFDataObject root) {
+        assertEquals("caf\u00e9", root.getValue("", "Language"));
+        assertEquals("say \"\u00fcber\" \u2603", root.getValue("Tokens", "TF_Quote"));
+    }
+
+    private static TFDataObject parse(ByteBuffer bytes, Charset charset) {
+        return TFDataObject.from(TFInput.of(bytes, charset));
+    }
+
+    private static ByteBuffer bytes(byte[] bom, String content, Charset charset) {
+        byte[] encoded = content.getBytes(charset);
+        ByteBuffer buffer = ByteBuffer.allocate(bom.length + encoded.length);
+        buffer.put(bom).put(encoded).flip();
+        return buffer;
+    }
+}
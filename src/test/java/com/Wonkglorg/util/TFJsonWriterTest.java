@@ -0,0 +1,58 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TFJsonWriterTest {
+
+    private static final TFDataObject ROOT = TFDataObject.from("\"r\" { \"a\" \"1\" \"b\" { \"c\" \"x\" } \"e\" { } }");
+
+    @Test
+    void stylesOnlyChangeWhitespace() throws IOException {
+        assertEquals("{\n\"a\" : \"1\",\n\"b\" : {\n\"c\" : \"x\"\n},\n\"e\" : {\n}\n}", ROOT.toJson());
+        assertEquals(ROOT.toJson(), json(TFJsonWriter.Style.LINES));
+        assertEquals("{\"a\":\"1\",\"b\":{\"c\":\"x\"},\"e\":{}}", json(TFJsonWriter.Style.COMPACT));
+        assertEquals("{\n  \"a\" : \"1\",\n  \"b\" : {\n    \"c\" : \"x\"\n  },\n  \"e\" : {}\n}", json(TFJsonWriter.Style.PRETTY));
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TFJsonWriter.escape("say \"hi\" C:\\hud\n\t\u0001 caf\u00e9", out);
+        assertEquals("say \\\"hi\\\" C:\\\\hud\\n\\t\\u0001 caf\u00e9", out.toString());
+        out.setLength(0);
+        TFJsonWriter.escape(null, out);
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    void streamsAndFilesMatchTheString() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ROOT.writeJson(bytes, StandardCharsets.UTF_16LE, TFJsonWriter.Style.COMPACT);
+        assertEquals(json(TFJsonWriter.Style.COMPACT), bytes.toString(StandardCharsets.UTF_16LE));
+
+        Path directory = Files.createTempDirectory("json");
+        Path file = directory.resolve("nested").resolve("r.json");
+        try {
+            ROOT.writeJsonToFile(directory.toString(), "nested/r.json");
+            assertEquals(ROOT.toJson(), Files.readString(file));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static String json(TFJsonWriter.Style style) throws IOException {
+        StringBuilder out = new StringBuilder();
+        ROOT.writeJson(out, style);
+        return out.toString();
+    }
+}
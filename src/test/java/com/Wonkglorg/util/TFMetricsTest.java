@@ -0,0 +1,89 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TFMetricsTest {
+
+    private static final String HUD = "\"hud\" { \"panel\" { \"xpos\" \"1\" } \"wide\" \"2\" }";
+
+    @Test
+    void enabledMetricsCountOperationsAndNotifyListeners() {
+        List<String> calls = new ArrayList<>();
+        TFMetricsListener listener = new TFMetricsListener() {
+            @Override
+            public void parsed(long length, long nodes, int maxDepth, long nanos) {
+                calls.add("parsed " + length + " " + nodes + " " + maxDepth);
+            }
+
+            @Override
+            public void serialized(String format, long chars, long nanos) {
+                calls.add(format + " " + chars);
+            }
+
+            @Override
+            public void merged(int objects, long nanos) {
+                calls.add("merged " + objects);
+            }
+
+            @Override
+            public void lookup(boolean hit) {
+                calls.add("lookup " + hit);
+            }
+        };
+        TFMetrics.reset();
+        TFMetrics.enable();
+        TFMetrics.addListener(listener);
+        try {
+            TFDataObject root = TFDataObject.from(HUD);
+            root.get("panel.xpos");
+            root.get("panel.ypos");
+            String json = root.toJson();
+            TFDataObject.merge(root, TFDataObject.from(HUD));
+
+            assertEquals(2, TFMetrics.getParses());
+            assertEquals(2L * HUD.length(), TFMetrics.getParsedLength());
+            assertEquals(1, TFMetrics.getLookupHits());
+            assertEquals(1, TFMetrics.getLookupMisses());
+            assertEquals(1, TFMetrics.getSerializations());
+            assertEquals(json.length(), TFMetrics.getSerializedChars());
+            assertEquals(json.length(), TFMetrics.getSerializedSize().getMax());
+            assertEquals(1, TFMetrics.getMerges());
+            assertEquals(2, TFMetrics.getParseNanos().getCount());
+            assertEquals(List.of("parsed " + HUD.length() + " " + TFMetrics.getNodes() / 2 + " " + TFMetrics.getParseDepth().getMax(),
+                    "lookup true", "lookup false", "json " + json.length(),
+                    "parsed " + HUD.length() + " " + TFMetrics.getNodes() / 2 + " " + TFMetrics.getParseDepth().getMax(), "merged 2"), calls);
+            assertTrue(TFMetrics.getNodes() > 0);
+        } finally {
+            TFMetrics.removeListener(listener);
+            TFMetrics.disable();
+        }
+
+        calls.clear();
+        TFMetrics.reset();
+        TFDataObject.from(HUD).get("panel.xpos");
+        assertEquals(0, TFMetrics.getParses());
+        assertEquals(0, TFMetrics.getLookupHits());
+        assertEquals(List.of(), calls);
+    }
+
+    @Test
+    void histogramPercentilesAreBucketBounds() {
+        TFHistogram histogram = new TFHistogram("test");
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(63, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(1));
+        histogram.reset();
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+}
@@ -0,0 +1,56 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TFPathTest {
+
+    private static final String ITEMS = "\"items_game\" { \"items\" { \"5021\" { \"name\" \"key\" \"attributes\" { \"a\" { \"value\" \"1\" } } } } }";
+
+    @Test
+    void pathsAreSplitOnceAndCompareByKeys() {
+        TFPath path = TFPath.of("items.5021.attributes");
+        assertEquals(3, path.size());
+        assertEquals("5021", path.segment(1));
+        assertEquals("attributes", path.last());
+        assertEquals(TFPath.of("items", "5021"), path.parent());
+        assertEquals(path, TFPath.of("items").child("5021").child("attributes"));
+        assertEquals(path.hashCode(), TFPath.of("items", "5021", "attributes").hashCode());
+        assertEquals("items.5021.attributes", path.toString());
+        assertTrue(TFPath.of("").isEmpty());
+        assertSame(TFPath.of((String) null), TFPath.of("items").parent());
+        assertEquals(3, TFPath.of("a..b").size());
+        assertEquals("", TFPath.of("a..b").segment(1));
+    }
+
+    @Test
+    void lookupsStopAtMissingKeys() {
+        TFDataObject root = TFDataObject.from(ITEMS);
+        TFPath attributes = TFPath.of("items.5021.attributes");
+        assertEquals("1", root.getValue(attributes.child("a"), "value"));
+        assertEquals("key", root.getValue(TFPath.of("items.5021"), "name"));
+        assertTrue(root.containsKey(attributes));
+        assertFalse(root.containsKey(TFPath.of("items.404.attributes")));
+        assertNull(root.get(TFPath.of("items.404.attributes")));
+        assertNull(root.getValue("items.404", "name"));
+        assertEquals("none", root.getValue("items.404", "name", "none"));
+        assertSame(root, root.get(TFPath.of("")));
+    }
+
+    @Test
+    void pathIndexFindsEveryObjectByItsFullPath() {
+        TFDataObject root = TFDataObject.from(ITEMS);
+        TFPathIndex index = TFPathIndex.of(root);
+        assertEquals(6, index.size());
+        assertSame(root, index.get(""));
+        assertSame(root.get("items.5021.attributes"), index.get(TFPath.of("items.5021.attributes")));
+        assertEquals("1", index.getValue("items.5021.attributes.a.value"));
+        assertNull(index.getValue("items.5021"));
+        assertFalse(index.containsKey("items.404"));
+    }
+}
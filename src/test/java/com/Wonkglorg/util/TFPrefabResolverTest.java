@@ -0,0 +1,61 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TFPrefabResolverTest {
+
+    private static final String ITEMS = "\"items_game\" { \"prefabs\" { \"weapon\" { \"slot\" \"primary\" \"attributes\" { \"damage\" \"1\" } }"
+            + " \"melee\" { \"prefab\" \"weapon\" \"slot\" \"melee\" } \"a\" { \"prefab\" \"b\" } \"b\" { \"prefab\" \"a\" } }"
+            + " \"items\" { \"1\" { \"prefab\" \"melee\" \"name\" \"bat\" \"attributes\" { \"speed\" \"2\" } } \"2\" { \"name\" \"plain\" }"
+            + " \"3\" { \"name\" \"first\" } \"3\" { \"prefab\" \"weapon\" \"name\" \"second\" } \"count\" \"3\" } }";
+
+    @Test
+    void prefabsAreAppliedInOrderWithoutChangingTheSource() {
+        TFDataObject root = TFDataObject.from(ITEMS);
+        TFDataObject attributes = root.get("items.1.attributes");
+        TFPrefabResolver resolver = TFPrefabResolver.of(root);
+
+        TFDataObject bat = resolver.get("items.1");
+        assertEquals("melee", bat.getValue("", "slot"));
+        assertEquals("1", bat.getValue("attributes", "damage"));
+        assertEquals("2", bat.getValue("attributes", "speed"));
+        assertEquals("primary", root.getValue("prefabs.weapon", "slot"));
+
+        //objects held from before stay part of the source and writable
+        attributes.addContent("range", new TFDataObject("items.1.attributes", "range", "5"));
+        assertEquals("5", root.getValue("items.1.attributes", "range"));
+        assertEquals(null, root.getValue("prefabs.weapon.attributes", "range"));
+    }
+
+    @Test
+    void resolveAllKeepsRepeatedKeysAndNeverWritesToTheSource() {
+        TFDataObject root = TFDataObject.from(ITEMS);
+        TFPrefabResolver resolver = TFPrefabResolver.of(root);
+        TFDataObject all = resolver.resolveAll("items");
+
+        List<TFDataObject> repeated = all.getAll("3");
+        assertEquals(2, repeated.size());
+        assertEquals("first", repeated.get(0).getValue("", "name"));
+        assertEquals("primary", repeated.get(1).getValue("", "slot"));
+
+        all.get("2").get("name").setValue("changed");
+        all.get("1").get("attributes.damage").setValue("9");
+        all.get("count").setValue("4");
+        assertEquals("plain", root.getValue("items.2", "name"));
+        assertEquals("1", root.getValue("prefabs.weapon.attributes", "damage"));
+        assertEquals("1", resolver.get("items.1").getValue("attributes", "damage"));
+        assertEquals("3", root.getValue("items", "count"));
+        assertEquals("changed", all.getValue("2", "name"));
+    }
+
+    @Test
+    void prefabCyclesAreReported() {
+        TFPrefabResolver resolver = TFPrefabResolver.of(TFDataObject.from(ITEMS));
+        assertThrows(IllegalStateException.class, () -> resolver.prefab("a"));
+    }
+}
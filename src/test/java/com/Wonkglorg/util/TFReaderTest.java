@@ -0,0 +1,62 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TFReaderTest {
+
+    private static final String ITEMS = "\"items_game\" { \"items\" { \"1\" { \"item_class\" \"tf_weapon_bat\" \"attributes\" { \"a\" { \"value\" \"1\" } } }"
+            + " // \"commented\" \"out\"\n \"2\" { \"item_class\" \"saxxy\" \"xpos\" \"1\" [$WIN32] \"xpos\" \"2\" } } }";
+
+    @Test
+    void eventsFollowTheFileOrder() {
+        List<String> events = new ArrayList<>();
+        TFReader.read(ITEMS, new TFVisitor() {
+            @Override
+            public boolean startObject(String key) {
+                events.add("{" + key);
+                return true;
+            }
+
+            @Override
+            public void keyValue(String key, String value) {
+                events.add(key + "=" + value);
+            }
+
+            @Override
+            public void endObject() {
+                events.add("}");
+            }
+        });
+        assertEquals(List.of("{items_game", "{items", "{1", "item_class=tf_weapon_bat", "{attributes", "{a", "value=1", "}", "}", "}",
+                "{2", "item_class=saxxy", "xpos=1", "xpos=2", "}", "}", "}"), events);
+    }
+
+    @Test
+    void skippedObjectsAreNotVisited() {
+        List<String> classes = new ArrayList<>();
+        int[] ends = new int[1];
+        TFReader.read(ITEMS, new TFVisitor() {
+            @Override
+            public boolean startObject(String key) {
+                return !key.equals("attributes");
+            }
+
+            @Override
+            public void keyValue(String key, String value) {
+                classes.add(key + "=" + value);
+            }
+
+            @Override
+            public void endObject() {
+                ends[0]++;
+            }
+        });
+        assertEquals(List.of("item_class=tf_weapon_bat", "item_class=saxxy", "xpos=1", "xpos=2"), classes);
+        assertEquals(4, ends[0]);
+    }
+}
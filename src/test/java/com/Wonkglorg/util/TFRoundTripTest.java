@@ -0,0 +1,165 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TFRoundTripTest {
+
+    private static final String HUD = "\"Resource/UI/HudPlayerHealth.res\"\n"
+            + "{\n"
+            + "\t// health cross\n"
+            + "\t\"HudPlayerHealth\"\n"
+            + "\t{\n"
+            + "\t\t\"fieldName\"\t\"HudPlayerHealth\"\n"
+            + "\t\t\"xpos\"\t\"c-100\"\t[$WIN32]\n"
+            + "\t\t\"xpos\"\t\"50\"\t[$X360]\n"
+            + "\t\t\"labelText\"\t\"say \\\"hi\\\"\"\n"
+            + "\t\t\"image\"\t\"C:\\hud\\\"\n"
+            + "\t\t\"SubPanel\" { \"wide\" \"f0\" }\n"
+            + "\t}\n"
+            + "}\n";
+
+    /**
+     * A file large enough for the incremental parser to track its child objects
+     */
+    private static String itemsGame(int items, String nameSuffix) {
+        StringBuilder builder = new StringBuilder("\"items_game\"\n{\n\t\"items\"\n\t{\n");
+        for (int i = 0; i < items; i++) {
+            builder.append("\t\t\"").append(i).append("\"\n\t\t{\n")
+                    .append("\t\t\t\"name\"\t\"item ").append(i).append(i == items / 2 ? nameSuffix : "").append("\"\n")
+                    .append("\t\t\t\"attributes\" { \"attribute ").append(i % 7).append("\" { \"value\" \"").append(i % 10).append(".5\" } }\n")
+                    .append("\t\t}\n");
+        }
+        return builder.append("\t}\n}\n").toString();
+    }
+
+    @Test
+    void keepsRepeatedKeysAndEscapes() {
+        TFDataObject root = TFDataObject.from(HUD);
+        TFDataObject panel = root.get("HudPlayerHealth");
+        assertEquals("50", panel.getValue("", "xpos"));
+        assertEquals(List.of("c-100", "50"), panel.getAll("xpos").stream().map(TFDataObject::getValue).toList());
+        assertEquals("say \"hi\"", panel.getValue("", "labelText"));
+        assertEquals("C:\\hud\\", panel.getValue("", "image"));
+        assertEquals("f0", root.getValue("HudPlayerHealth.SubPanel", "wide"));
+    }
+
+    @Test
+    void parseModesBuildTheSameTree() {
+        String text = itemsGame(300, "");
+        TFDataObject plain = TFDataObject.from(text);
+        TFDataObject lazy = TFDataObject.from(TFInput.of(text), TFParseOptions.defaults().lazy(true));
+        TFDataObject parallel = TFDataObject.from(TFInput.of(text), TFParseOptions.defaults().parallel(true));
+        TFDataObject pooled = TFDataObject.from(TFInput.of(text), TFParseOptions.defaults().stringPool(new TFStringPool()));
+        assertEquals(plain.toJson(), lazy.toJson());
+        assertEquals(plain.toJson(), parallel.toJson());
+        assertEquals(plain.toJson(), pooled.toJson());
+        assertEquals("item 150", plain.getValue("items.150", "name"));
+    }
+
+    @Test
+    void sharedPoolDeduplicatesAcrossParses() {
+        String text = itemsGame(300, "");
+        TFStringPool shared = TFStringPool.shared();
+        TFParseOptions options = TFParseOptions.defaults().stringPool(shared);
+        TFDataObject first = TFDataObject.from(TFInput.of(text), options);
+        TFDataObject second = TFDataObject.from(TFInput.of(text), TFParseOptions.defaults().stringPool(shared).parallel(true));
+        assertEquals(TFDataObject.from(text).toJson(), second.toJson());
+        assertSame(first.getValue("items.7", "name"), second.getValue("items.7", "name"));
+        assertTrue(shared.getStatistics().hits() > 0);
+        assertEquals(TFDataObject.from(text).toJson(), TFDataObject.from(TFInput.of(text), TFParseOptions.defaults().pooled(true)).toJson());
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        TFDataObject root = TFDataObject.from(HUD);
+        Path snapshot = Files.createTempFile("roundtrip", TFSnapshot.EXTENSION);
+        try {
+            TFSnapshot.write(root, snapshot);
+            TFDataObject read = TFSnapshot.read(snapshot);
+            assertTrue(root.contentEquals(read));
+            assertEquals(root.getKey(), read.getKey());
+            assertEquals(2, read.get("HudPlayerHealth").getAll("xpos").size());
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @Test
+    void sidecarSnapshotIsUsedForUnchangedFile() throws IOException {
+        Path source = Files.createTempFile("roundtrip", ".txt");
+        try {
+            Files.writeString(source, itemsGame(50, ""));
+            TFParseOptions options = TFParseOptions.defaults().snapshots(true);
+            TFDataObject first = TFSnapshot.load(source, StandardCharsets.UTF_8, options);
+            assertTrue(Files.isRegularFile(TFSnapshot.sidecar(source)));
+            TFDataObject second = TFSnapshot.load(source, StandardCharsets.UTF_8, options);
+            assertTrue(first.contentEquals(second));
+        } finally {
+            Files.deleteIfExists(TFSnapshot.sidecar(source));
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Test
+    void compactDocumentFindsChildrenOfWideObjects() {
+        String text = itemsGame(300, "").replace("\"item 42\"\n", "\"item 42\"\n\t\t\t\"name\"\t\"again\"\n");
+        TFDataObject tree = TFDataObject.from(text);
+        TFDataObject compact = TFCompactDocument.from(TFInput.of(text)).root();
+        for (int i = 0; i < 300; i++) {
+            assertEquals(tree.getValue("items." + i, "name"), compact.getValue("items." + i, "name"));
+        }
+        assertNull(compact.get("items.300"));
+        assertEquals(List.of("item 42", "again"), compact.get("items.42").getAll("name").stream().map(TFDataObject::getValue).toList());
+        TFDataObject items = compact.get("items");
+        assertSame(items.getContentMap(), items.getContentMap());
+    }
+
+    @Test
+    void sidecarSnapshotOfAnotherCharsetIsNotUsed() throws IOException {
+        Path source = Files.createTempFile("roundtrip", ".txt");
+        try {
+            Files.writeString(source, "\"lang\" { \"name\" \"caf\u00e9\" }", StandardCharsets.UTF_8);
+            TFParseOptions options = TFParseOptions.defaults().snapshots(true);
+            assertEquals("caf\u00e9", TFSnapshot.load(source, StandardCharsets.UTF_8, options).getValue("", "name"));
+            TFDataObject latin = TFSnapshot.load(source, StandardCharsets.ISO_8859_1, options);
+            assertEquals(new String("caf\u00e9".getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1), latin.getValue("", "name"));
+        } finally {
+            Files.deleteIfExists(TFSnapshot.sidecar(source));
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Test
+    void freezeAndThawKeepContent() {
+        TFDataObject root = TFDataObject.from(HUD);
+        TFDataObject frozen = root.freeze();
+        assertTrue(root.contentEquals(frozen));
+        assertTrue(root.contentEquals(frozen.thaw()));
+        assertEquals(2, frozen.get("HudPlayerHealth").getAll("xpos").size());
+    }
+
+    @Test
+    void incrementalUpdateMatchesFreshParse() {
+        String before = itemsGame(400, "");
+        TFIncrementalFile file = TFIncrementalFile.load(before.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, null);
+        String after = itemsGame(400, " renamed");
+        List<String> changed = file.update(after.getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of("items.200.name"), changed);
+        assertTrue(TFDataObject.from(after).contentEquals(file.root()));
+
+        String unbalanced = after.replace("\"item 10\"", "\"item 10\" {");
+        file.update(unbalanced.getBytes(StandardCharsets.UTF_8));
+        assertTrue(TFDataObject.from(unbalanced).contentEquals(file.root()));
+    }
+}
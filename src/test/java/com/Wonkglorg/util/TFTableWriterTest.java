@@ -0,0 +1,64 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TFTableWriterTest {
+
+    private static final TFDataObject ROOT = TFDataObject.from("\"r\" { \"a\" \"1\" \"b\" \"22\" \"c\" { \"d\" \"333\" } }");
+    private static final TFTableFormat FORMAT = TFTableFormat.compile("|%path|%key|%value|");
+
+    @Test
+    void widthsAreFittedToTheWrittenRows() throws IOException {
+        StringBuilder out = new StringBuilder();
+        assertEquals(3, new TFTableWriter(out, FORMAT).write(ROOT, null, -1));
+        assertEquals("""
+                |Path |Key|Value|
+                ______________________
+                |r.   |a  |1    |
+                |r.   |b  |22   |
+                |r.c  |d  |333  |
+                """, out.toString());
+    }
+
+    @Test
+    void fixedWidthsCutLongerCells() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new TFTableWriter(out, FORMAT).widths(1, 1, 1).write(ROOT, null, -1);
+        assertEquals("""
+                |Pat|Key|Val|
+                __________________
+                |r. |a  |1  |
+                |r. |b  |22 |
+                |r.c|d  |333|
+                """, out.toString());
+    }
+
+    @Test
+    void onlyUnsetWidthsAreFitted() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new TFTableWriter(out, FORMAT).widths(0, 3, 0).write(ROOT, "c", -1);
+        assertEquals("""
+                |Path |Key  |Value|
+                ________________________
+                |r.c  |d    |333  |
+                """, out.toString());
+    }
+
+    @Test
+    void pagesSelectRowsAndUseTheLineSeparator() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TFTableWriter writer = new TFTableWriter(out, FORMAT).widths(3, 1, 3).page(1, 2).lineSeparator("\r\n");
+        assertEquals(1, writer.write(ROOT, null, -1));
+        assertEquals("|Path |Key|Value|\r\n______________________\r\n|r.c  |d  |333  |\r\n", out.toString());
+
+        out.setLength(0);
+        assertEquals(1, writer.offset(1).limit(1).write(ROOT, null, -1));
+        assertEquals("|r.   |b  |22   |", out.toString().split("\r\n")[2]);
+        out.setLength(0);
+        assertEquals(0, writer.page(2, 2).write(ROOT, null, -1));
+    }
+}
@@ -0,0 +1,119 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TFTokenizerTest {
+
+    /**
+     * Tokenizes the input into strings, braces as { and } and conditionals as they are written
+     */
+    private static List<String> tokens(String input) {
+        List<String> tokens = new ArrayList<>();
+        TFTokenizer tokenizer = new TFTokenizer(input);
+        while (true) {
+            switch (tokenizer.next()) {
+                case STRING:
+                    tokens.add(tokenizer.text());
+                    break;
+                case OPEN:
+                    tokens.add("{");
+                    break;
+                case CLOSE:
+                    tokens.add("}");
+                    break;
+                case CONDITIONAL:
+                    tokens.add(input.substring(tokenizer.tokenStart(), tokenizer.tokenEnd()));
+                    break;
+                case EOF:
+                    return tokens;
+            }
+        }
+    }
+
+    @Test
+    void readsQuotedAndUnquotedStringsAndBraces() {
+        assertEquals(List.of("items", "{", "1", "{", "name", "bat", "}", "}"), tokens("\"items\"\n{\n\t1 { \"name\"\t\"bat\" }\n}"));
+    }
+
+    @Test
+    void skipsCommentsAndKeepsConditionals() {
+        assertEquals(List.of("xpos", "10", "[$WIN32]", "ypos", "5"), tokens("// header\n\"xpos\" \"10\" [$WIN32] // trailing\n\"ypos\" \"5\""));
+    }
+
+    @Test
+    void commentMarkerInsideQuotesIsText() {
+        assertEquals(List.of("url", "http://example.com"), tokens("\"url\" \"http://example.com\""));
+    }
+
+    @Test
+    void resolvesEscapes() {
+        assertEquals(List.of("text", "say \"hi\"\tnow\\"), tokens("\"text\" \"say \\\"hi\\\"\\tnow\\\\\""));
+    }
+
+    @Test
+    void keepsUnknownEscapes() {
+        assertEquals(List.of("path", "models\\weapons\\bat.mdl"), tokens("\"path\" \"models\\weapons\\bat.mdl\""));
+    }
+
+    @Test
+    void trailingBackslashDoesNotSwallowClosingQuote() {
+        assertEquals(List.of("dir", "C:\\dir\\", "}"), tokens("\"dir\" \"C:\\dir\\\"\n}"));
+        assertEquals(List.of("dir", "C:\\dir\\", "next", "1"), tokens("\"dir\" \"C:\\dir\\\" \"next\" \"1\""));
+        assertEquals(List.of("dir", "C:\\dir\\", "[$WIN32]"), tokens("\"dir\" \"C:\\dir\\\" [$WIN32]"));
+    }
+
+    @Test
+    void quoteInTrailingCommentDoesNotKeepStringOpen() {
+        assertEquals(List.of("dir", "C:\\dir\\", "next", "1"), tokens("\"dir\" \"C:\\dir\\\" // it's \"odd\n\"next\" \"1\""));
+        assertEquals(List.of("url", "say \"http://x\" now"), tokens("\"url\" \"say \\\"http://x\\\" now\""));
+    }
+
+    @Test
+    void manyEscapedQuotesOnOneLine() {
+        StringBuilder input = new StringBuilder("\"key\" \"");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            input.append("\\\"x");
+            expected.append("\"x");
+        }
+        assertEquals(List.of("key", expected.toString()), tokens(input.append('"').toString()));
+    }
+
+    @Test
+    void unterminatedStringRunsToTheEnd() {
+        assertEquals(List.of("key", "value\n}"), tokens("\"key\" \"value\n}"));
+    }
+
+    @Test
+    void skipObjectReturnsMatchingBrace() {
+        String input = "{ \"a\" { \"b\" \"}\" } \"c\" \"d\" } \"after\"";
+        TFTokenizer tokenizer = new TFTokenizer(input);
+        tokenizer.next();
+        assertEquals(input.lastIndexOf('}'), tokenizer.skipObject());
+        tokenizer.next();
+        assertEquals("after", tokenizer.text());
+    }
+
+    @Test
+    void skipObjectStopsAtEndWithoutClosingBrace() {
+        String input = "{ \"a\" { \"b\" \"c\" }";
+        TFTokenizer tokenizer = new TFTokenizer(input);
+        tokenizer.next();
+        assertEquals(input.length(), tokenizer.skipObject());
+    }
+
+    @Test
+    void pooledTextMatchesDecodedText() {
+        TFStringPool pool = new TFStringPool();
+        TFTokenizer tokenizer = new TFTokenizer("\"a\\\"b\" plain");
+        tokenizer.next();
+        assertEquals("a\"b", tokenizer.text(pool));
+        tokenizer.next();
+        assertEquals("plain", tokenizer.text(pool));
+    }
+}
@@ -0,0 +1,83 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TFValueParserTest {
+
+    @Test
+    void longsThatOverflowAreParsedAsDoubles() {
+        assertEquals(TFValueParser.LONG, TFValueParser.numberKind("9223372036854775807"));
+        assertEquals(Long.MAX_VALUE, TFValueParser.parseLong("9223372036854775807"));
+        assertEquals(TFValueParser.DOUBLE, TFValueParser.numberKind("9223372036854775808"));
+        assertEquals(9.223372036854775808e18, TFValueParser.parseDouble("9223372036854775808"), 0);
+        assertEquals(9.223372e18f, value("9223372036854775808").asFloat(0), 0);
+        assertEquals(Long.MAX_VALUE, value("9223372036854775808").asLong(0));
+        assertEquals(-12, value(" -12 ").asLong(0));
+    }
+
+    @Test
+    void floatSuffixAndBooleansAreNumbers() {
+        assertEquals(TFValueParser.DOUBLE, TFValueParser.numberKind("1.5f"));
+        assertEquals(1.5f, value("1.5f").asFloat(0), 0);
+        assertEquals(1, value("1.5f").asInt(0));
+        assertTrue(value("true").asBoolean(false));
+        assertFalse(value("FALSE").asBoolean(true));
+        assertEquals(1, value("True").asInt(0));
+        assertEquals(0, value("false").asInt(7));
+        assertEquals(7, value("yes").asInt(7));
+    }
+
+    @Test
+    void numberKindRejectsNaNAndInfinity() {
+        assertEquals(TFValueParser.INVALID_NUMBER, TFValueParser.numberKind("NaN"));
+        assertEquals(TFValueParser.INVALID_NUMBER, TFValueParser.numberKind("Infinity"));
+        assertEquals(TFValueParser.INVALID_NUMBER, TFValueParser.numberKind("-Infinity"));
+        assertEquals(TFValueParser.INVALID_NUMBER, TFValueParser.numberKind("0x1p3"));
+        assertEquals(TFValueParser.INVALID_NUMBER, TFValueParser.numberKind("   "));
+        assertEquals(3f, value("NaN").asFloat(3f), 0);
+    }
+
+    @Test
+    void vectorsMayBeBracketed() {
+        assertArrayEquals(new float[]{0, 0, 1}, TFValueParser.parseVector("[0 0 1]"));
+        assertArrayEquals(new float[]{1.5f, -2, 3}, TFValueParser.parseVector("{ 1.5 -2 3 }"));
+        assertArrayEquals(new float[]{1, 2, 3, 4, 5}, TFValueParser.parseVector("1 2 3 4 5"));
+        assertNull(TFValueParser.parseVector("[ ]"));
+        assertNull(TFValueParser.parseVector("1 two 3"));
+        assertNull(TFValueParser.parseVector("1 NaN 3"));
+    }
+
+    @Test
+    void colorComponentsMustBeBetween0And255() {
+        assertEquals(0xFFFF8000L, TFValueParser.parseColor("255 128 0"));
+        assertEquals(0x10203040L, TFValueParser.parseColor("[32 48 64 16]"));
+        assertEquals(-1, TFValueParser.parseColor("256 0 0"));
+        assertEquals(-1, TFValueParser.parseColor("-1 0 0"));
+        assertEquals(-1, TFValueParser.parseColor("0 0 0 0 0"));
+        assertEquals(-1, TFValueParser.parseColor("1 2"));
+        assertEquals(-1, TFValueParser.parseColor("1.5 2 3"));
+        assertEquals(5, value("256 0 0").asColor(5));
+    }
+
+    @Test
+    void colorAndVectorOfTheSameValueAreCachedApart() {
+        TFDataObject object = value("255 128 0");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0xFFFF8000, object.asColor(0));
+            assertArrayEquals(new float[]{255, 128, 0}, object.asVector());
+        }
+        object.setValue("0.5 1 0");
+        assertEquals(7, object.asColor(7));
+        assertArrayEquals(new float[]{0.5f, 1, 0}, object.asVector());
+    }
+
+    private static TFDataObject value(String value) {
+        return new TFDataObject("", "key", value);
+    }
+}
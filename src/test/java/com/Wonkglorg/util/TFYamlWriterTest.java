@@ -0,0 +1,53 @@
+package com.Wonkglorg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TFYamlWriterTest {
+
+    private static final TFDataObject ROOT = TFDataObject.from("\"r\" { \"a\" \"1\" \"my key\" \"say \\\"hi\\\"\" \"b\" { \"c\" { \"d\" \"x\" } }"
+            + " \"xpos\" \"1\" \"xpos\" \"2\" \"o\" { \"v\" \"1\" } \"o\" { \"v\" \"2\" } }");
+
+    @Test
+    void writesTheLayoutToYamlHasAlwaysProduced() {
+        assertEquals("""
+                a: "1"
+                "my key": "say \\"hi\\""
+                b:
+                  c:
+                    d: "x"
+                xpos:
+                  - "1"
+                  - "2"
+                o:
+                  v: "1"
+                  v: "2"
+                """, ROOT.toYaml(2));
+        assertEquals("b:\n    c:\n        d: \"x\"\n", TFDataObject.from("\"r\" { \"b\" { \"c\" { \"d\" \"x\" } } }").toYaml(4));
+    }
+
+    @Test
+    void deepTreesAndFilesMatchTheString() throws IOException {
+        StringBuilder deep = new StringBuilder("\"r\" {");
+        for (int i = 0; i < 40; i++) deep.append(" \"k").append(i).append("\" {");
+        deep.append(" \"v\" \"1\"").append(" }".repeat(41));
+        TFDataObject root = TFDataObject.from(deep.toString());
+        String yaml = root.toYaml(1);
+        assertEquals(" ".repeat(40) + "v: \"1\"\n", yaml.substring(yaml.lastIndexOf('\n', yaml.length() - 2) + 1));
+
+        Path directory = Files.createTempDirectory("yaml");
+        Path file = directory.resolve("r.yml");
+        try {
+            ROOT.writeYamlToFile(directory.toString(), "r.yml", 2);
+            assertEquals(ROOT.toYaml(2), Files.readString(file));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+}